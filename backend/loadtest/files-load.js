@@ -0,0 +1,51 @@
+// k6 load test for the file endpoints, used to compare platform vs virtual threads.
+//
+// Run the backend twice, once with SPRING_THREADS_VIRTUAL_ENABLED=false and once with =true
+// (add -Djdk.tracePinnedThreads=short to JAVA_OPTS to log any carrier pinning), then:
+//
+//   k6 run -e BASE_URL=http://localhost:8080 -e TOKEN=<jwt> -e KEY=<existing object key> \
+//          -e UPLOAD_FILE=/path/to/image.jpg loadtest/files-load.js
+//
+// Compare http_req_duration p95 and iterations/s between the two runs. Downloads are the
+// interesting case: each request parks on S3 for most of its lifetime, so with virtual threads
+// throughput should keep rising past Tomcat's 200 platform threads.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const TOKEN = __ENV.TOKEN;
+const KEY = __ENV.KEY;
+const payload = open(__ENV.UPLOAD_FILE, 'b');
+
+export const options = {
+    scenarios: {
+        downloads: {
+            executor: 'ramping-vus',
+            exec: 'download',
+            stages: [
+                { duration: '30s', target: 100 },
+                { duration: '1m', target: 400 },
+                { duration: '30s', target: 0 },
+            ],
+        },
+        uploads: {
+            executor: 'constant-vus',
+            exec: 'upload',
+            vus: 50,
+            duration: '2m',
+        },
+    },
+};
+
+const headers = { Authorization: `Bearer ${TOKEN}` };
+
+export function download() {
+    const res = http.get(`${BASE_URL}/api/files/download/${encodeURIComponent(KEY)}`, { headers });
+    check(res, { 'download 200': (r) => r.status === 200 });
+}
+
+export function upload() {
+    const res = http.post(`${BASE_URL}/api/files/upload`,
+        { file: http.file(payload, 'sample.jpg', 'image/jpeg') }, { headers });
+    check(res, { 'upload 200': (r) => r.status === 200 });
+}
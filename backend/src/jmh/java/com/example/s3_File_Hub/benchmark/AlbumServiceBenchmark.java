@@ -0,0 +1,95 @@
+package com.example.s3_File_Hub.benchmark;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+import com.example.s3_File_Hub.dto.AlbumSummary;
+import com.example.s3_File_Hub.model.Album;
+import com.example.s3_File_Hub.repository.AlbumRepository;
+import com.example.s3_File_Hub.service.AlbumService;
+
+/**
+ * Album queries against PostgreSQL holding {@code albumCount} albums of {@code filesPerAlbum} files.
+ * The removal benchmark puts the removed key back into the same albums before every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class AlbumServiceBenchmark {
+
+    // Every albumStride-th album also contains SHARED_KEY
+    private static final String SHARED_KEY = "shared.jpg";
+    private static final int ALBUM_STRIDE = 1000;
+
+    @Param("10000")
+    public int albumCount;
+
+    @Param("20")
+    public int filesPerAlbum;
+
+    private BenchmarkContext context;
+    private AlbumService albumService;
+    private AlbumRepository albumRepository;
+    private List<Long> sharedKeyAlbumIds;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new BenchmarkContext();
+        albumService = context.getBean(AlbumService.class);
+        albumRepository = context.getBean(AlbumRepository.class);
+
+        List<Album> albums = new ArrayList<>();
+        for (int a = 0; a < albumCount; a++) {
+            List<String> keys = new ArrayList<>();
+            for (int f = 0; f < filesPerAlbum; f++) {
+                keys.add("album-" + a + "/file-" + f + ".jpg");
+            }
+            albums.add(new Album("Album " + a, keys));
+        }
+        albumRepository.saveAll(albums);
+
+        sharedKeyAlbumIds = new ArrayList<>();
+        for (int a = 0; a < albums.size(); a += ALBUM_STRIDE) {
+            sharedKeyAlbumIds.add(albums.get(a).getId());
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void addSharedKey() {
+        List<Album> albums = albumRepository.findAllById(sharedKeyAlbumIds);
+        for (Album album : albums) {
+            // Insert in the middle so removal has to renumber the files after it
+            List<String> keys = new ArrayList<>(album.getFileKeys());
+            keys.add(keys.size() / 2, SHARED_KEY);
+            album.setFileKeys(keys);
+        }
+        albumRepository.saveAll(albums);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public List<Long> removeFileFromAlbums() {
+        return albumService.removeFileFromAlbums(SHARED_KEY);
+    }
+
+    @Benchmark
+    public List<Album> listAlbums() {
+        return albumService.listAlbums();
+    }
+
+    @Benchmark
+    public List<AlbumSummary> listAlbumSummaries() {
+        return albumService.listAlbumSummaries(0, 20);
+    }
+}
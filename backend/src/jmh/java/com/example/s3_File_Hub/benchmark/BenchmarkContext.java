@@ -0,0 +1,83 @@
+package com.example.s3_File_Hub.benchmark;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import com.example.s3_File_Hub.S3FileHubApplication;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import software.amazon.awssdk.services.s3.S3Client;
+
+/**
+ * The application context against a throwaway PostgreSQL (real binaries, so the native queries run
+ * as in production) and the in-memory S3. Background jobs are pushed out beyond any benchmark run.
+ */
+final class BenchmarkContext implements AutoCloseable {
+
+    private final EmbeddedPostgres postgres;
+    private final ConfigurableApplicationContext context;
+
+    static class InMemoryS3Config {
+        @Bean
+        @Primary
+        S3Client inMemoryS3Client() {
+            return InMemoryS3Client.create();
+        }
+    }
+
+    BenchmarkContext() throws IOException {
+        postgres = EmbeddedPostgres.start();
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("SPRING_APPLICATION_NAME", "s3-File-Hub-benchmark");
+        // Full servlet context (security needs Spring MVC's beans) on a random free port
+        properties.put("server.port", "0");
+        properties.put("AWS_REGION", "us-east-1");
+        properties.put("AWS_S3_BUCKET_NAME", "benchmark");
+        properties.put("AWS_ACCESS_KEY", "benchmark");
+        properties.put("AWS_SECRET_KEY", "benchmark");
+        properties.put("SPRING_SERVLET_MULTIPART_MAX_FILE_SIZE", "1GB");
+        properties.put("SPRING_SERVLET_MULTIPART_MAX_REQUEST_SIZE", "1GB");
+        properties.put("DATASOURCE_URL", postgres.getJdbcUrl("postgres", "postgres"));
+        properties.put("DATASOURCE_USER", "postgres");
+        properties.put("DATASOURCE_PASSWORD", "postgres");
+        properties.put("FRONTEND_URL", "http://localhost:5173");
+        properties.put("SPRING_JPA_PROPERTIES_HIBERNATE_DIALECT", "org.hibernate.dialect.PostgreSQLDialect");
+        properties.put("SPRING_JPA_HIBERNATE_DDL_AUTO", "update");
+        properties.put("SPRING_JPA_SHOW_SQL", "false");
+        properties.put("JWT_SECRET", JwtBenchmark.SECRET);
+        properties.put("JWT_EXPIRATION", "86400000");
+        properties.put("SPRING_MAIL_HOST", "localhost");
+        properties.put("SPRING_MAIL_PORT", "25");
+        properties.put("SPRING_MAIL_USERNAME", "benchmark");
+        properties.put("SPRING_MAIL_PASSWORD", "benchmark");
+        properties.put("SPRING_MAIL_PROPERTIES_MAIL_SMTP_AUTH", "false");
+        properties.put("SPRING_MAIL_PROPERTIES_MAIL_SMTP_STARTTLS_ENABLE", "false");
+        properties.put("STORAGE_QUOTA_GLOBAL_LIMIT_MB", "-1");
+        properties.put("THUMBNAILS_ENABLED", "false");
+        properties.put("files.index.reconcile-initial-delay-ms", "86400000");
+        properties.put("storage.quota.reconcile-initial-delay-ms", "86400000");
+        properties.put("blobs.reconcile-initial-delay-ms", "86400000");
+        properties.put("EMAIL_OUTBOX_POLL_INTERVAL_MS", "86400000");
+
+        context = new SpringApplicationBuilder(S3FileHubApplication.class, InMemoryS3Config.class)
+                .properties(properties)
+                .run();
+    }
+
+    <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        postgres.close();
+    }
+}
@@ -0,0 +1,212 @@
+package com.example.s3_File_Hub.benchmark;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.paginators.ListObjectsV2Iterable;
+
+/**
+ * In-process stand-in for the operations S3Service and friends call on S3Client, backed by a map,
+ * so benchmarks measure our code instead of the network. Request bodies are read in full like the
+ * real client would send them; responses stream from memory.
+ */
+final class InMemoryS3Client implements InvocationHandler {
+
+    private record StoredObject(byte[] content, String contentType, Map<String, String> metadata,
+                                String eTag, Instant lastModified) {}
+
+    private final NavigableMap<String, StoredObject> objects = new ConcurrentSkipListMap<>();
+    private final Map<String, NavigableMap<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+    private final Map<String, CreateMultipartUploadRequest> uploadRequests = new ConcurrentHashMap<>();
+
+    private InMemoryS3Client() {}
+
+    static S3Client create() {
+        return (S3Client) Proxy.newProxyInstance(S3Client.class.getClassLoader(),
+                new Class<?>[]{S3Client.class}, new InMemoryS3Client());
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "putObject" -> putObject((PutObjectRequest) args[0], (RequestBody) args[1]);
+            case "getObject" -> getObject((GetObjectRequest) args[0]);
+            case "headObject" -> headObject((HeadObjectRequest) args[0]);
+            case "deleteObject" -> deleteObject((DeleteObjectRequest) args[0]);
+            case "deleteObjects" -> deleteObjects((DeleteObjectsRequest) args[0]);
+            case "listObjectsV2" -> listObjectsV2((ListObjectsV2Request) args[0]);
+            case "listObjectsV2Paginator" -> new ListObjectsV2Iterable((S3Client) proxy, (ListObjectsV2Request) args[0]);
+            case "createMultipartUpload" -> createMultipartUpload((CreateMultipartUploadRequest) args[0]);
+            case "uploadPart" -> uploadPart((UploadPartRequest) args[0], (RequestBody) args[1]);
+            case "completeMultipartUpload" -> completeMultipartUpload((CompleteMultipartUploadRequest) args[0]);
+            case "abortMultipartUpload" -> abortMultipartUpload((AbortMultipartUploadRequest) args[0]);
+            case "serviceName" -> "s3";
+            case "close" -> null;
+            case "toString" -> "InMemoryS3Client";
+            case "hashCode" -> System.identityHashCode(proxy);
+            case "equals" -> proxy == args[0];
+            default -> throw new UnsupportedOperationException("Not supported by the in-memory S3: " + method.getName());
+        };
+    }
+
+    private PutObjectResponse putObject(PutObjectRequest request, RequestBody body) {
+        StoredObject object = store(request.key(), read(body), request.contentType(), request.metadata());
+        return PutObjectResponse.builder().eTag(object.eTag()).build();
+    }
+
+    private ResponseInputStream<GetObjectResponse> getObject(GetObjectRequest request) {
+        StoredObject object = find(request.key());
+        GetObjectResponse response = GetObjectResponse.builder()
+                .contentType(object.contentType())
+                .contentLength((long) object.content().length)
+                .eTag(object.eTag())
+                .lastModified(object.lastModified())
+                .metadata(object.metadata())
+                .build();
+        return new ResponseInputStream<>(response,
+                AbortableInputStream.create(new ByteArrayInputStream(object.content())));
+    }
+
+    private HeadObjectResponse headObject(HeadObjectRequest request) {
+        StoredObject object = find(request.key());
+        return HeadObjectResponse.builder()
+                .contentType(object.contentType())
+                .contentLength((long) object.content().length)
+                .eTag(object.eTag())
+                .lastModified(object.lastModified())
+                .metadata(object.metadata())
+                .build();
+    }
+
+    private DeleteObjectResponse deleteObject(DeleteObjectRequest request) {
+        objects.remove(request.key());
+        return DeleteObjectResponse.builder().build();
+    }
+
+    private DeleteObjectsResponse deleteObjects(DeleteObjectsRequest request) {
+        request.delete().objects().forEach(id -> objects.remove(id.key()));
+        return DeleteObjectsResponse.builder().build();
+    }
+
+    private ListObjectsV2Response listObjectsV2(ListObjectsV2Request request) {
+        String prefix = request.prefix() == null ? "" : request.prefix();
+        int maxKeys = request.maxKeys() == null ? 1000 : request.maxKeys();
+        NavigableMap<String, StoredObject> tail = request.continuationToken() == null
+                ? objects.tailMap(prefix, true)
+                : objects.tailMap(request.continuationToken(), false);
+
+        List<S3Object> contents = tail.entrySet().stream()
+                .takeWhile(e -> e.getKey().startsWith(prefix))
+                .limit(maxKeys + 1L)
+                .map(e -> S3Object.builder()
+                        .key(e.getKey())
+                        .size((long) e.getValue().content().length)
+                        .eTag(e.getValue().eTag())
+                        .lastModified(e.getValue().lastModified())
+                        .build())
+                .toList();
+        boolean truncated = contents.size() > maxKeys;
+        if (truncated) {
+            contents = contents.subList(0, maxKeys);
+        }
+        return ListObjectsV2Response.builder()
+                .contents(contents)
+                .keyCount(contents.size())
+                .isTruncated(truncated)
+                .nextContinuationToken(truncated ? contents.get(contents.size() - 1).key() : null)
+                .build();
+    }
+
+    private CreateMultipartUploadResponse createMultipartUpload(CreateMultipartUploadRequest request) {
+        String uploadId = UUID.randomUUID().toString();
+        uploads.put(uploadId, new ConcurrentSkipListMap<>());
+        uploadRequests.put(uploadId, request);
+        return CreateMultipartUploadResponse.builder().uploadId(uploadId).key(request.key()).build();
+    }
+
+    private UploadPartResponse uploadPart(UploadPartRequest request, RequestBody body) {
+        byte[] content = read(body);
+        upload(request.uploadId()).put(request.partNumber(), content);
+        return UploadPartResponse.builder().eTag(eTag(content)).build();
+    }
+
+    private CompleteMultipartUploadResponse completeMultipartUpload(CompleteMultipartUploadRequest request) {
+        NavigableMap<Integer, byte[]> parts = upload(request.uploadId());
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        for (CompletedPart part : request.multipartUpload().parts()) {
+            content.writeBytes(parts.get(part.partNumber()));
+        }
+        CreateMultipartUploadRequest created = uploadRequests.remove(request.uploadId());
+        uploads.remove(request.uploadId());
+
+        StoredObject object = store(request.key(), content.toByteArray(), created.contentType(), created.metadata());
+        return CompleteMultipartUploadResponse.builder().key(request.key()).eTag(object.eTag()).build();
+    }
+
+    private AbortMultipartUploadResponse abortMultipartUpload(AbortMultipartUploadRequest request) {
+        uploads.remove(request.uploadId());
+        uploadRequests.remove(request.uploadId());
+        return AbortMultipartUploadResponse.builder().build();
+    }
+
+    private StoredObject store(String key, byte[] content, String contentType, Map<String, String> metadata) {
+        StoredObject object = new StoredObject(content, contentType, metadata, eTag(content), Instant.now());
+        objects.put(key, object);
+        return object;
+    }
+
+    private StoredObject find(String key) {
+        StoredObject object = objects.get(key);
+        if (object == null) {
+            throw NoSuchKeyException.builder()
+                    .statusCode(404)
+                    .awsErrorDetails(AwsErrorDetails.builder().errorCode("NoSuchKey").build())
+                    .message("The specified key does not exist.")
+                    .build();
+        }
+        return object;
+    }
+
+    private NavigableMap<Integer, byte[]> upload(String uploadId) {
+        NavigableMap<Integer, byte[]> parts = uploads.get(uploadId);
+        if (parts == null) {
+            throw NoSuchUploadException.builder()
+                    .statusCode(404)
+                    .awsErrorDetails(AwsErrorDetails.builder().errorCode("NoSuchUpload").build())
+                    .build();
+        }
+        return parts;
+    }
+
+    private static byte[] read(RequestBody body) {
+        try (InputStream in = body.contentStreamProvider().newStream()) {
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String eTag(byte[] content) {
+        return "\"" + Integer.toHexString(Arrays.hashCode(content)) + "\"";
+    }
+}
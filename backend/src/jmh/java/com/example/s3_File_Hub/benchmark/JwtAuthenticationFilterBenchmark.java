@@ -0,0 +1,76 @@
+package com.example.s3_File_Hub.benchmark;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.s3_File_Hub.config.AuthenticatedUserCache;
+import com.example.s3_File_Hub.config.JwtAuthenticationFilter;
+import com.example.s3_File_Hub.entity.User;
+import com.example.s3_File_Hub.repository.UserRepository;
+import com.example.s3_File_Hub.util.JwtUtil;
+
+/**
+ * Per-request cost of the JWT filter with and without the verified-token cache. The user lookup is
+ * stubbed, so a miss here is the signature check plus the filter itself; the real query time shows
+ * up in the spring.data.repository.invocations metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private JwtAuthenticationFilter cachedFilter;
+    private JwtAuthenticationFilter uncachedFilter;
+    private String authorization;
+
+    @Setup
+    public void setUp() {
+        JwtUtil jwtUtil = JwtBenchmark.newJwtUtil();
+        User user = JwtBenchmark.benchmarkUser();
+        UserRepository userRepository = (UserRepository) Proxy.newProxyInstance(
+                UserRepository.class.getClassLoader(), new Class<?>[]{UserRepository.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("findByEmail")) {
+                        return Optional.of(user);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+
+        cachedFilter = new JwtAuthenticationFilter(jwtUtil, userRepository, new AuthenticatedUserCache(10_000, 300));
+        // A zero TTL expires every entry on insert, so each request takes the full path
+        uncachedFilter = new JwtAuthenticationFilter(jwtUtil, userRepository, new AuthenticatedUserCache(10_000, 0));
+        authorization = "Bearer " + jwtUtil.generateToken(user);
+    }
+
+    @Benchmark
+    public Object cachedToken() throws Exception {
+        return filter(cachedFilter);
+    }
+
+    @Benchmark
+    public Object uncachedToken() throws Exception {
+        return filter(uncachedFilter);
+    }
+
+    private Object filter(JwtAuthenticationFilter filter) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/files/list");
+        request.setServletPath("/api/files/list");
+        request.addHeader("Authorization", authorization);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return SecurityContextHolder.getContext().getAuthentication();
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.s3_File_Hub.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.example.s3_File_Hub.dto.FilePage;
+import com.example.s3_File_Hub.service.FileIndexService;
+import com.example.s3_File_Hub.service.S3Service;
+
+/**
+ * Upload, download and listing through S3Service with the in-memory S3, so the numbers cover
+ * hashing, deduplication, quota and index bookkeeping rather than network time. Uploads delete
+ * their file again to keep the state the same across invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class S3ServiceBenchmark {
+
+    private static final String OWNER = "benchmark@example.com";
+
+    // 64 KB goes through a single PutObject, 16 MB through the parallel multipart path
+    @Param({"65536", "16777216"})
+    public int fileSize;
+
+    @Param("10000")
+    public int indexedFiles;
+
+    private BenchmarkContext context;
+    private S3Service s3Service;
+    private byte[] content;
+    private byte[] duplicateContent;
+    private String downloadKey;
+    private long counter;
+
+    @Setup
+    public void setUp() throws IOException {
+        context = new BenchmarkContext();
+        s3Service = context.getBean(S3Service.class);
+
+        content = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(content);
+        duplicateContent = content.clone();
+        // Holds a reference on the duplicate's blob for the whole run
+        downloadKey = s3Service.uploadFile(file(duplicateContent), OWNER);
+
+        FileIndexService fileIndexService = context.getBean(FileIndexService.class);
+        for (int i = 0; i < indexedFiles; i++) {
+            fileIndexService.record("indexed-" + i + ".jpg", 1024, "image/jpeg", OWNER, "\"" + i + "\"");
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public String uploadUnique() throws IOException {
+        // Different bytes every time, so each upload stores a new blob
+        long value = ++counter;
+        for (int i = 0; i < Long.BYTES; i++) {
+            content[i] = (byte) (value >>> (8 * i));
+        }
+        return uploadAndDelete(content);
+    }
+
+    @Benchmark
+    public String uploadDuplicate() throws IOException {
+        return uploadAndDelete(duplicateContent);
+    }
+
+    @Benchmark
+    public long download() throws IOException {
+        try (InputStream in = s3Service.openFile(downloadKey, null, null)) {
+            return in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public FilePage listFirstPage() {
+        return s3Service.listFiles(null, null, true, null, 50);
+    }
+
+    private String uploadAndDelete(byte[] bytes) throws IOException {
+        String key = s3Service.uploadFile(file(bytes), OWNER);
+        s3Service.deleteFileWithThumbnail(key);
+        return key;
+    }
+
+    private static MockMultipartFile file(byte[] bytes) {
+        return new MockMultipartFile("file", "benchmark.jpg", "image/jpeg", bytes);
+    }
+}
@@ -2,8 +2,10 @@ package com.example.s3_File_Hub;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class S3FileHubApplication {
 
 	public static void main(String[] args) {
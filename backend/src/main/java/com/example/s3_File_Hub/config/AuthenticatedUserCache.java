@@ -0,0 +1,75 @@
+package com.example.s3_File_Hub.config;
+
+import com.example.s3_File_Hub.entity.Role;
+import com.example.s3_File_Hub.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Verified bearer tokens mapped to their user, so repeat requests skip the HMAC check and the
+ * user lookup. An entry lives for the configured TTL but never past the token's own expiry.
+ * Entries hold a snapshot of the account, never the JPA entity, and every request gets its own
+ * User built from it. {@link UserChangeListener} evicts a user's entries whenever the row changes.
+ */
+@Component
+public class AuthenticatedUserCache {
+
+    // The password hash is left out; the principal is never used to check credentials
+    private record Entry(Long id, String email, Role role, boolean enabled, Instant tokenExpiresAt) {
+
+        User toUser() {
+            return User.builder().id(id).email(email).role(role).enabled(enabled).build();
+        }
+    }
+
+    private final Cache<String, Entry> cache;
+
+    public AuthenticatedUserCache(@Value("${jwt.cache.max-entries:10000}") long maxEntries,
+                                  @Value("${jwt.cache.ttl-seconds:300}") long ttlSeconds) {
+        Duration ttl = Duration.ofSeconds(ttlSeconds);
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Entry>() {
+                    @Override
+                    public long expireAfterCreate(String token, Entry entry, long currentTime) {
+                        Duration untilExpiry = Duration.between(Instant.now(), entry.tokenExpiresAt());
+                        if (untilExpiry.isNegative()) {
+                            return 0;
+                        }
+                        return (untilExpiry.compareTo(ttl) < 0 ? untilExpiry : ttl).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String token, Entry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(token, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String token, Entry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public User get(String token) {
+        Entry entry = cache.getIfPresent(token);
+        return entry == null ? null : entry.toUser();
+    }
+
+    public void put(String token, User user, Date tokenExpiresAt) {
+        cache.put(token, new Entry(user.getId(), user.getEmail(), user.getRole(), user.isEnabled(),
+                tokenExpiresAt.toInstant()));
+    }
+
+    public void evictUser(String email) {
+        cache.asMap().values().removeIf(entry -> entry.email().equals(email));
+    }
+}
@@ -1,7 +1,10 @@
 package com.example.s3_File_Hub.config;
 
+import com.example.s3_File_Hub.entity.User;
 import com.example.s3_File_Hub.repository.UserRepository;
 import com.example.s3_File_Hub.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,6 +24,7 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtUtil jwtUtil;
     private final UserRepository userRepository;
+    private final AuthenticatedUserCache authenticatedUserCache;
 
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) {
@@ -41,11 +45,13 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         String token = authHeader.substring(7);
-        String username = jwtUtil.extractUsername(token);
 
-        if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-            var user = userRepository.findByEmail(username).orElse(null);
-            if (user != null && jwtUtil.isTokenValid(token, user)) {
+        if (SecurityContextHolder.getContext().getAuthentication() == null) {
+            User user = authenticatedUserCache.get(token);
+            if (user == null) {
+                user = verify(token);
+            }
+            if (user != null) {
                 UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
                         user, null, user.getAuthorities()
                 );
@@ -56,4 +62,21 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         filterChain.doFilter(request, response);
     }
+
+    // Full check on a cache miss: one signature verification plus one user lookup
+    private User verify(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.parseClaims(token);
+        } catch (JwtException | IllegalArgumentException e) {
+            return null;
+        }
+
+        User user = userRepository.findByEmail(claims.getSubject()).orElse(null);
+        if (user == null) {
+            return null;
+        }
+        authenticatedUserCache.put(token, user, claims.getExpiration());
+        return user;
+    }
 }
@@ -0,0 +1,64 @@
+package com.example.s3_File_Hub.config;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.http.HttpMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+import software.amazon.awssdk.metrics.SdkMetric;
+
+/**
+ * Feeds the SDK's per-request metrics into Micrometer. The HTTP client reports its pool state
+ * with every attempt, so the connection gauges show the pool as seen by the most recent request
+ * (s3.http.connections.* — leased, pending, available, max).
+ */
+public class S3ClientMetricsPublisher implements MetricPublisher {
+
+    private final AtomicLong leased = new AtomicLong();
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong available = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+    private final Timer acquireTimer;
+    private final Counter retryCounter;
+
+    public S3ClientMetricsPublisher(MeterRegistry meterRegistry) {
+        meterRegistry.gauge("s3.http.connections.leased", leased);
+        meterRegistry.gauge("s3.http.connections.pending", pending);
+        meterRegistry.gauge("s3.http.connections.available", available);
+        meterRegistry.gauge("s3.http.connections.max", max);
+        this.acquireTimer = meterRegistry.timer("s3.http.connections.acquire");
+        this.retryCounter = meterRegistry.counter("s3.client.retries");
+    }
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        // Top level is the API call; attempts and their HTTP client metrics are children
+        metrics.metricValues(CoreMetric.RETRY_COUNT).forEach(count -> retryCounter.increment(count));
+        record(metrics);
+    }
+
+    private void record(MetricCollection metrics) {
+        latest(metrics, HttpMetric.LEASED_CONCURRENCY, leased);
+        latest(metrics, HttpMetric.PENDING_CONCURRENCY_ACQUIRES, pending);
+        latest(metrics, HttpMetric.AVAILABLE_CONCURRENCY, available);
+        latest(metrics, HttpMetric.MAX_CONCURRENCY, max);
+        metrics.metricValues(HttpMetric.CONCURRENCY_ACQUIRE_DURATION).forEach(acquireTimer::record);
+        metrics.children().forEach(this::record);
+    }
+
+    private static void latest(MetricCollection metrics, SdkMetric<Integer> metric, AtomicLong gauge) {
+        List<Integer> values = metrics.metricValues(metric);
+        if (!values.isEmpty()) {
+            gauge.set(values.get(values.size() - 1));
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
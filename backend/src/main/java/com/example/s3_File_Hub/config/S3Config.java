@@ -1,16 +1,31 @@
 package com.example.s3_File_Hub.config;
 
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+import java.util.Locale;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
 import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.core.retry.RetryMode;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.http.apache.ApacheHttpClient;
 import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.crt.S3CrtHttpConfiguration;
+import software.amazon.awssdk.services.s3.crt.S3CrtRetryConfiguration;
 import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
 
+// Only with storage.engine=s3 (the default); the local engine needs no AWS settings at all
 @Configuration
+@ConditionalOnProperty(name = "storage.engine", havingValue = "s3", matchIfMissing = true)
 public class S3Config {
 
     @Value("${aws.access-key}")
@@ -22,12 +37,61 @@ public class S3Config {
     @Value("${aws.region}")
     private String region;
 
+    @Value("${aws.s3.http.max-connections:200}")
+    private int maxConnections;
+
+    @Value("${aws.s3.http.connection-acquisition-timeout-ms:10000}")
+    private long connectionAcquisitionTimeoutMs;
+
+    @Value("${aws.s3.http.connection-timeout-ms:2000}")
+    private long connectionTimeoutMs;
+
+    @Value("${aws.s3.http.socket-timeout-ms:30000}")
+    private long socketTimeoutMs;
+
+    @Value("${aws.s3.http.connection-max-idle-ms:60000}")
+    private long connectionMaxIdleMs;
+
+    @Value("${aws.s3.http.tcp-keep-alive:true}")
+    private boolean tcpKeepAlive;
+
+    @Value("${aws.s3.retry.mode:adaptive}")
+    private String retryMode;
+
+    @Value("${aws.s3.retry.max-retries:3}")
+    private int maxRetries;
+
     @Bean
-    public S3Client s3Client() {
+    public S3ClientMetricsPublisher s3ClientMetricsPublisher(MeterRegistry meterRegistry) {
+        return new S3ClientMetricsPublisher(meterRegistry);
+    }
+
+    @Bean
+    public S3MetricsInterceptor s3MetricsInterceptor(MeterRegistry meterRegistry) {
+        return new S3MetricsInterceptor(meterRegistry);
+    }
+
+    @Bean
+    public S3Client s3Client(S3ClientMetricsPublisher metricsPublisher, S3MetricsInterceptor metricsInterceptor) {
         AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
         return S3Client.builder()
                 .region(Region.of(region))
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .httpClientBuilder(ApacheHttpClient.builder()
+                        .maxConnections(maxConnections)
+                        .connectionAcquisitionTimeout(Duration.ofMillis(connectionAcquisitionTimeoutMs))
+                        .connectionTimeout(Duration.ofMillis(connectionTimeoutMs))
+                        .socketTimeout(Duration.ofMillis(socketTimeoutMs))
+                        .connectionMaxIdleTime(Duration.ofMillis(connectionMaxIdleMs))
+                        .useIdleConnectionReaper(true)
+                        .tcpKeepAlive(tcpKeepAlive))
+                // Adaptive mode adds client-side rate limiting on top of retries once S3 starts throttling
+                .overrideConfiguration(o -> o
+                        .retryPolicy(RetryPolicy.builder(RetryMode.valueOf(retryMode.toUpperCase(Locale.ROOT)))
+                                .numRetries(maxRetries)
+                                .build())
+                        .addMetricPublisher(metricsPublisher)
+                        .addExecutionInterceptor(metricsInterceptor))
                 .build();
     }
 
@@ -39,4 +103,37 @@ public class S3Config {
                 .credentialsProvider(StaticCredentialsProvider.create(credentials))
                 .build();
     }
+
+    // The async engine is only created when aws.s3.engine=crt; S3StorageEngine falls back to s3Client otherwise.
+    // The CRT client manages its own connections (sized by max-concurrency) and supports neither SDK metric
+    // publishers nor interceptors, so its calls don't show up in the s3.* metrics
+    @Bean
+    @ConditionalOnProperty(name = "aws.s3.engine", havingValue = "crt")
+    public S3AsyncClient s3AsyncClient(@Value("${aws.s3.crt.target-throughput-gbps:10}") double targetThroughputGbps,
+                                       @Value("${aws.s3.crt.max-concurrency:64}") int maxConcurrency,
+                                       @Value("${aws.s3.multipart.part-size-mb:8}") long partSizeMB,
+                                       @Value("${aws.s3.crt.connection-timeout-ms:3000}") long crtConnectionTimeoutMs) {
+        AwsBasicCredentials credentials = AwsBasicCredentials.create(accessKey, secretKey);
+        return S3AsyncClient.crtBuilder()
+                .region(Region.of(region))
+                .credentialsProvider(StaticCredentialsProvider.create(credentials))
+                .targetThroughputInGbps(targetThroughputGbps)
+                .maxConcurrency(maxConcurrency)
+                .minimumPartSizeInBytes(partSizeMB * 1024 * 1024)
+                .httpConfiguration(S3CrtHttpConfiguration.builder()
+                        .connectionTimeout(Duration.ofMillis(crtConnectionTimeoutMs))
+                        .build())
+                .retryConfiguration(S3CrtRetryConfiguration.builder()
+                        .numRetries(maxRetries)
+                        .build())
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "aws.s3.engine", havingValue = "crt")
+    public S3TransferManager s3TransferManager(S3AsyncClient s3AsyncClient) {
+        return S3TransferManager.builder()
+                .s3Client(s3AsyncClient)
+                .build();
+    }
 }
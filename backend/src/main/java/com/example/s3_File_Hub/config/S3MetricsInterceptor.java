@@ -0,0 +1,90 @@
+package com.example.s3_File_Hub.config;
+
+import java.time.Duration;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import software.amazon.awssdk.awscore.exception.AwsServiceException;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttribute;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.http.SdkHttpHeaders;
+
+/**
+ * Times every S3 call, retries included, as s3.client.requests tagged with the operation, the
+ * outcome and the S3 error code, and counts body bytes per operation as s3.client.bytes.
+ * For GetObject the timer stops when the response headers arrive; the body is read afterwards.
+ */
+public class S3MetricsInterceptor implements ExecutionInterceptor {
+
+    private static final ExecutionAttribute<Long> START_NANOS = new ExecutionAttribute<>("MetricsStartNanos");
+
+    private final MeterRegistry meterRegistry;
+
+    public S3MetricsInterceptor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public void beforeExecution(Context.BeforeExecution context, ExecutionAttributes executionAttributes) {
+        executionAttributes.putAttribute(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterExecution(Context.AfterExecution context, ExecutionAttributes executionAttributes) {
+        String operation = executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+        record(operation, "success", "none", executionAttributes);
+
+        long sent = contentLength(context.httpRequest());
+        if (sent > 0) {
+            bytesCounter(operation, "upload").increment(sent);
+        }
+        long received = contentLength(context.httpResponse());
+        if (received > 0) {
+            bytesCounter(operation, "download").increment(received);
+        }
+    }
+
+    @Override
+    public void onExecutionFailure(Context.FailedExecution context, ExecutionAttributes executionAttributes) {
+        Throwable error = context.exception();
+        String errorCode = error instanceof AwsServiceException serviceException
+                && serviceException.awsErrorDetails() != null
+                && serviceException.awsErrorDetails().errorCode() != null
+                ? serviceException.awsErrorDetails().errorCode()
+                : error.getClass().getSimpleName();
+        record(executionAttributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME), "error", errorCode,
+                executionAttributes);
+    }
+
+    private void record(String operation, String outcome, String errorCode, ExecutionAttributes executionAttributes) {
+        Long start = executionAttributes.getAttribute(START_NANOS);
+        if (start == null) {
+            return;
+        }
+        Timer.builder("s3.client.requests")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("error.code", errorCode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    private Counter bytesCounter(String operation, String direction) {
+        return Counter.builder("s3.client.bytes")
+                .baseUnit("bytes")
+                .tag("operation", operation)
+                .tag("direction", direction)
+                .register(meterRegistry);
+    }
+
+    private static long contentLength(SdkHttpHeaders message) {
+        return message.firstMatchingHeader("Content-Length")
+                .map(Long::parseLong)
+                .orElse(0L);
+    }
+}
@@ -13,6 +13,11 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.servlet.util.matcher.PathPatternRequestMatcher;
+import org.springframework.security.web.util.matcher.AndRequestMatcher;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.security.web.util.matcher.OrRequestMatcher;
+import org.springframework.security.web.util.matcher.RequestMatcher;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
 import org.springframework.web.filter.CorsFilter;
@@ -27,6 +32,9 @@ public class SecurityConfig {
     @Value("${frontend.url}")
     private String frontendUrl;
 
+    @Value("${metrics.scrape.allowed-addresses:}")
+    private List<String> metricsScrapeAllowedAddresses;
+
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
     private final CustomUserDetailsService customUserDetailsService;
 
@@ -39,6 +47,11 @@ public class SecurityConfig {
                 .requestMatchers("/api/auth/**").permitAll()
                 .requestMatchers("/api/albums/shared/**").permitAll()
                 .requestMatchers("/api/files/download/**").permitAll()
+                // Local storage engine URLs carry their own signature, like presigned S3 URLs
+                .requestMatchers("/api/storage/**").permitAll()
+                .requestMatchers("/actuator/health").permitAll()
+                // Scrapers on the allowlist only; anyone else has to log in like for any other endpoint
+                .requestMatchers(metricsScrapeMatcher()).permitAll()
                 .anyRequest().authenticated()
                 .and()
                 .sessionManagement().sessionCreationPolicy(SessionCreationPolicy.STATELESS)
@@ -49,6 +62,18 @@ public class SecurityConfig {
         return http.build();
     }
 
+    private RequestMatcher metricsScrapeMatcher() {
+        List<RequestMatcher> addresses = metricsScrapeAllowedAddresses.stream()
+                .filter(address -> !address.isBlank())
+                .map(address -> (RequestMatcher) new IpAddressMatcher(address.trim()))
+                .toList();
+        if (addresses.isEmpty()) {
+            return request -> false;
+        }
+        return new AndRequestMatcher(PathPatternRequestMatcher.withDefaults().matcher("/actuator/prometheus"),
+                new OrRequestMatcher(addresses));
+    }
+
     @Bean
     public CorsFilter corsFilter() {
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
@@ -0,0 +1,23 @@
+package com.example.s3_File_Hub.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StorageConfig {
+
+    // With spring.threads.virtual.enabled each part upload / delete batch / prefetch gets its own virtual thread;
+    // the SDK connection pool (and the per-upload semaphore) still bound how many hit S3 at once
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService transferExecutor(@Value("${storage.transfer.threads:16}") int threads,
+                                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads) {
+        if (virtualThreads) {
+            return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("transfer-", 0).factory());
+        }
+        return Executors.newFixedThreadPool(threads);
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.s3_File_Hub.config;
+
+import com.example.s3_File_Hub.entity.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Drops cached principals of a user whose row was updated or deleted (verification, password,
+ * role, enabled flag), whichever code path made the change. Eviction waits for the commit, so a
+ * request in between can't cache the old state again.
+ */
+@Component
+public class UserChangeListener {
+
+    private final AuthenticatedUserCache authenticatedUserCache;
+
+    public UserChangeListener(AuthenticatedUserCache authenticatedUserCache) {
+        this.authenticatedUserCache = authenticatedUserCache;
+    }
+
+    @PostUpdate
+    @PostRemove
+    public void userChanged(User user) {
+        String email = user.getEmail();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    authenticatedUserCache.evictUser(email);
+                }
+            });
+        } else {
+            authenticatedUserCache.evictUser(email);
+        }
+    }
+}
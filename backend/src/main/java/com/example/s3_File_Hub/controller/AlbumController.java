@@ -1,11 +1,20 @@
 package com.example.s3_File_Hub.controller;
 
+import com.example.s3_File_Hub.dto.AlbumSummary;
+import com.example.s3_File_Hub.dto.SharedAlbumView;
 import com.example.s3_File_Hub.model.Album;
+import com.example.s3_File_Hub.service.AlbumArchiveService;
 import com.example.s3_File_Hub.service.AlbumService;
+import com.example.s3_File_Hub.service.SharedAlbumService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 @RestController
@@ -13,9 +22,14 @@ import java.util.List;
 public class AlbumController {
 
     private final AlbumService albumService;
+    private final SharedAlbumService sharedAlbumService;
+    private final AlbumArchiveService albumArchiveService;
 
-    public AlbumController(AlbumService albumService) {
+    public AlbumController(AlbumService albumService, SharedAlbumService sharedAlbumService,
+                           AlbumArchiveService albumArchiveService) {
         this.albumService = albumService;
+        this.sharedAlbumService = sharedAlbumService;
+        this.albumArchiveService = albumArchiveService;
     }
 
     @PostMapping
@@ -29,6 +43,17 @@ public class AlbumController {
         return ResponseEntity.ok(albumService.listAlbums());
     }
 
+    // Paginated list view without file keys: /api/albums?page=0&size=20
+    @GetMapping(params = "size")
+    public ResponseEntity<List<AlbumSummary>> listAlbumSummaries(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam int size) {
+        if (page < 0 || size < 1 || size > 100) {
+            throw new IllegalArgumentException("page must be >= 0 and size between 1 and 100");
+        }
+        return ResponseEntity.ok(albumService.listAlbumSummaries(page, size));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<Album> getAlbum(@PathVariable Long id) {
         return albumService.getAlbum(id)
@@ -47,9 +72,38 @@ public class AlbumController {
     }
 
     @GetMapping("/shared/{shareCode}")
-    public ResponseEntity<Album> getSharedAlbum(@PathVariable("shareCode") String shareCode) {
-        return albumService.getAlbumByShareCode(shareCode)
+    public ResponseEntity<SharedAlbumView> getSharedAlbum(@PathVariable("shareCode") String shareCode) {
+        return sharedAlbumService.getSharedAlbum(shareCode)
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
+
+    @GetMapping("/{id}/download")
+    public ResponseEntity<StreamingResponseBody> downloadAlbum(@PathVariable Long id) {
+        return albumService.getAlbum(id)
+                .map(this::zipResponse)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/shared/{shareCode}/download")
+    public ResponseEntity<StreamingResponseBody> downloadSharedAlbum(@PathVariable("shareCode") String shareCode) {
+        return albumService.getAlbumByShareCode(shareCode)
+                .map(this::zipResponse)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Streamed without a Content-Length; the archive is built while it is being sent
+    private ResponseEntity<StreamingResponseBody> zipResponse(Album album) {
+        List<String> fileKeys = album.getFileKeys() == null ? List.of() : List.copyOf(album.getFileKeys());
+        String fileName = (album.getName() == null || album.getName().isBlank() ? "album" : album.getName()) + ".zip";
+
+        StreamingResponseBody body = out -> albumArchiveService.writeZip(fileKeys, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(fileName, StandardCharsets.UTF_8)
+                        .build()
+                        .toString())
+                .body(body);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,5 @@
 package com.example.s3_File_Hub.controller;
 
-import java.io.IOException;
 import java.net.URLEncoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
@@ -9,23 +8,47 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
 
 import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.ServletWebRequest;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.example.s3_File_Hub.dto.DeleteResult;
+import com.example.s3_File_Hub.dto.FilePage;
+import com.example.s3_File_Hub.dto.MultipartUploadInit;
+import com.example.s3_File_Hub.dto.PresignedPart;
+import com.example.s3_File_Hub.dto.UploadedPart;
+import com.example.s3_File_Hub.entity.User;
+import com.example.s3_File_Hub.exceptions.StorageException;
 import com.example.s3_File_Hub.model.StorageStats;
 import com.example.s3_File_Hub.service.AlbumService;
+import com.example.s3_File_Hub.service.MultipartUploadService;
 import com.example.s3_File_Hub.service.S3Service;
+import com.example.s3_File_Hub.service.StorageEngine;
+import com.example.s3_File_Hub.service.StorageObject;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
 
 @RestController
 @RequestMapping("/api/files")
@@ -33,27 +56,50 @@ public class FilesController {
 
     private final S3Service s3Service;
     private final AlbumService albumService;
+    // Only present with the S3 storage engine
+    private final ObjectProvider<MultipartUploadService> multipartUploadService;
+    // Active count is the number of downloads being streamed
+    private final LongTaskTimer downloadTimer;
 
     private static final Set<String> ALLOWED_MIME_TYPES = Set.of(
             "image/jpeg", "image/png", "image/gif", "image/webp",
             "video/mp4", "video/quicktime", "video/x-matroska", "video/webm", "video/avi"
     );
 
-    public FilesController(S3Service s3Service, AlbumService albumService) {
+    private static final int MAX_PAGE_SIZE = 1000;
+
+    // Only a single byte range is forwarded to storage; multi-range requests get the full body
+    private static final Pattern SINGLE_RANGE = Pattern.compile("bytes=(\\d+-\\d*|-\\d+)");
+
+    // Uploads and their thumbnails get a fresh UUID prefix, so the bytes behind such a key never change
+    private static final Pattern IMMUTABLE_KEY = Pattern.compile(
+            "(thumbnails/(\\d+/)?)?\\p{XDigit}{8}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{4}-\\p{XDigit}{12}_.*",
+            Pattern.DOTALL);
+
+    public FilesController(S3Service s3Service, AlbumService albumService,
+                           ObjectProvider<MultipartUploadService> multipartUploadService,
+                           MeterRegistry meterRegistry) {
         this.s3Service = s3Service;
         this.albumService = albumService;
+        this.multipartUploadService = multipartUploadService;
+        this.downloadTimer = LongTaskTimer.builder("files.downloads").tag("type", "file").register(meterRegistry);
     }
 
     @PostMapping("/upload")
-    public ResponseEntity<String> upload(@RequestParam("file") MultipartFile file) throws IOException {
-        String key = s3Service.uploadFile(file);
-        return ResponseEntity.ok("File uploaded with key: " + key);
+    public CompletableFuture<ResponseEntity<String>> upload(@RequestParam("file") MultipartFile file,
+                                                            @AuthenticationPrincipal User user) {
+        return s3Service.uploadFileAsync(file, user.getEmail())
+                .thenApply(key -> ResponseEntity.ok("File uploaded with key: " + key));
     }
 
     @GetMapping("/download/{key:.+}")
-    public ResponseEntity<byte[]> download(
+    public CompletableFuture<ResponseEntity<StreamingResponseBody>> download(
             @PathVariable String key,
             @RequestParam(value = "token", required = false) String token,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+            @RequestHeader(value = HttpHeaders.IF_MODIFIED_SINCE, required = false) String ifModifiedSince,
             HttpServletRequest request) {
         // If token is present, manually authenticate the user (for direct <img src="...">)
         if (token != null) {
@@ -62,12 +108,87 @@ public class FilesController {
             // Authentication auth = jwtProvider.getAuthentication(token);
             // SecurityContextHolder.getContext().setAuthentication(auth);
         }
-        byte[] data = s3Service.downloadFile(key);
+        if (range != null && !SINGLE_RANGE.matcher(range).matches()) {
+            range = null;
+        }
+
+        // Revalidation only needs the validators: answered from the object cache or a HEAD request
+        if (ifNoneMatch != null || ifModifiedSince != null) {
+            StorageEngine.ObjectInfo info = s3Service.statFile(key);
+            if (info != null && new ServletWebRequest(request).checkNotModified(info.eTag(),
+                    info.lastModified() != null ? info.lastModified().toEpochMilli() : -1)) {
+                return CompletableFuture.completedFuture(notModified(key, info));
+            }
+        }
+
+        return s3Service.openFileAsync(key, range, ifRange)
+                .handle((object, error) -> {
+                    if (error == null) {
+                        return streamObject(key, object);
+                    }
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    if (cause instanceof StorageException storageException
+                            && storageException.getStatusCode() == HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value()) {
+                        return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE).build();
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+                });
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamObject(String key, StorageObject object) {
         String encodedFileName = URLEncoder.encode(key, StandardCharsets.UTF_8);
-        return ResponseEntity.ok()
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
+        MediaType contentType = object.getContentType() != null
+                ? MediaType.parseMediaType(object.getContentType())
+                : MediaType.APPLICATION_OCTET_STREAM;
+
+        // Bytes are copied from storage to the servlet output with a small fixed buffer
+        StreamingResponseBody body = out -> {
+            LongTaskTimer.Sample download = downloadTimer.start();
+            try (object) {
+                object.transferTo(out);
+            } finally {
+                download.stop();
+            }
+        };
+
+        ResponseEntity.BodyBuilder builder = object.getContentRange() != null
+                ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, object.getContentRange())
+                : ResponseEntity.ok();
+
+        if (object.getETag() != null) {
+            builder.eTag(object.getETag());
+        }
+        if (object.getLastModified() != null) {
+            builder.lastModified(object.getLastModified());
+        }
+
+        return builder
+                .cacheControl(cacheControl(key))
+                .contentType(contentType)
+                .contentLength(object.getContentLength())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
                 .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + encodedFileName + "\"")
-                .body(data);
+                .body(body);
+    }
+
+    private static ResponseEntity<StreamingResponseBody> notModified(String key, StorageEngine.ObjectInfo info) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(cacheControl(key));
+        if (info.eTag() != null) {
+            builder.eTag(info.eTag());
+        }
+        if (info.lastModified() != null) {
+            builder.lastModified(info.lastModified());
+        }
+        return builder.build();
+    }
+
+    // Other keys may be overwritten in place, so caches have to revalidate them with the validators above
+    private static CacheControl cacheControl(String key) {
+        return IMMUTABLE_KEY.matcher(key).matches()
+                ? CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable()
+                : CacheControl.noCache();
     }
 
     @GetMapping("/preview-url/{key:.+}")
@@ -76,6 +197,14 @@ public class FilesController {
         return ResponseEntity.ok(url);
     }
 
+    @PostMapping("/preview-urls")
+    public ResponseEntity<Map<String, String>> previewUrls(@RequestBody List<String> keys) {
+        if (keys.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " keys per request");
+        }
+        return ResponseEntity.ok(s3Service.getPresignedUrls(keys, Duration.ofMinutes(10)));
+    }
+
     @DeleteMapping("/delete/{key:.+}")
     public ResponseEntity<String> delete(@PathVariable String key) {
         s3Service.deleteFileWithThumbnail(key);
@@ -83,11 +212,36 @@ public class FilesController {
         return ResponseEntity.ok("Deleted file and its thumbnail: " + key);
     }
 
+    @PostMapping("/delete")
+    public ResponseEntity<List<DeleteResult>> deleteBatch(@RequestBody List<String> keys) {
+        List<DeleteResult> results = s3Service.deleteFiles(keys);
+        albumService.removeFilesFromAlbums(results.stream()
+                .filter(DeleteResult::isDeleted)
+                .map(DeleteResult::getKey)
+                .toList());
+        return ResponseEntity.ok(results);
+    }
+
     @GetMapping("/list")
     public ResponseEntity<List<String>> listFiles() {
         return ResponseEntity.ok(s3Service.listFiles());
     }
 
+    // Paginated variant, selected by passing a page size: /list?size=50&cursor=...
+    @GetMapping(value = "/list", params = "size")
+    public ResponseEntity<FilePage> listFilesPage(
+            @RequestParam int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String prefix,
+            @RequestParam(required = false) String contentType,
+            @RequestParam(defaultValue = "desc") String sort) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        boolean newestFirst = !"asc".equalsIgnoreCase(sort);
+        return ResponseEntity.ok(s3Service.listFiles(prefix, contentType, newestFirst, cursor, size));
+    }
+
     @GetMapping("/thumbnails")
     public ResponseEntity<List<String>> listThumbnails() {
         return ResponseEntity.ok(s3Service.listThumbnails());
@@ -101,6 +255,62 @@ public class FilesController {
         return response;
     }
 
+    // Direct multipart upload: create, presign parts in batches, then complete (or abort)
+    @PostMapping("/multipart")
+    public ResponseEntity<MultipartUploadInit> createMultipartUpload(
+            @RequestParam String filename,
+            @RequestParam String type,
+            @RequestParam long size,
+            @AuthenticationPrincipal User user) {
+        if (!ALLOWED_MIME_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Unsupported file type: " + type);
+        }
+        return ResponseEntity.ok(multipartUploads().create(filename, type, size, user.getEmail()));
+    }
+
+    @PostMapping("/multipart/presign")
+    public ResponseEntity<List<PresignedPart>> presignParts(
+            @RequestParam String key,
+            @RequestParam String uploadId,
+            @RequestBody List<Integer> partNumbers,
+            @AuthenticationPrincipal User user) {
+        if (partNumbers.size() > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_PAGE_SIZE + " parts per request");
+        }
+        return ResponseEntity.ok(multipartUploads().presignParts(key, uploadId, partNumbers, user.getEmail()));
+    }
+
+    @GetMapping("/multipart/parts")
+    public ResponseEntity<List<UploadedPart>> listParts(@RequestParam String key, @RequestParam String uploadId,
+                                                        @AuthenticationPrincipal User user) {
+        return ResponseEntity.ok(multipartUploads().listParts(key, uploadId, user.getEmail()));
+    }
+
+    @PostMapping("/multipart/complete")
+    public ResponseEntity<String> completeMultipartUpload(
+            @RequestParam String key,
+            @RequestParam String uploadId,
+            @RequestBody(required = false) List<UploadedPart> parts,
+            @AuthenticationPrincipal User user) {
+        String completedKey = multipartUploads().complete(key, uploadId, parts, user.getEmail());
+        return ResponseEntity.ok("File uploaded with key: " + completedKey);
+    }
+
+    @DeleteMapping("/multipart")
+    public ResponseEntity<String> abortMultipartUpload(@RequestParam String key, @RequestParam String uploadId,
+                                                       @AuthenticationPrincipal User user) {
+        multipartUploads().abort(key, uploadId, user.getEmail());
+        return ResponseEntity.ok("Aborted upload: " + key);
+    }
+
+    private MultipartUploadService multipartUploads() {
+        MultipartUploadService service = multipartUploadService.getIfAvailable();
+        if (service == null) {
+            throw new StorageException(HttpStatus.NOT_IMPLEMENTED.value(), "Direct multipart uploads need the S3 storage engine");
+        }
+        return service;
+    }
+
     @PostMapping("/presign-upload")
     public ResponseEntity<Map<String, String>> getPresignedUploadUrl(
             @RequestParam String filename,
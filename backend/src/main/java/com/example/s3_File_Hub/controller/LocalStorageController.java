@@ -0,0 +1,97 @@
+package com.example.s3_File_Hub.controller;
+
+import java.io.IOException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+import com.example.s3_File_Hub.service.LocalStorageEngine;
+import com.example.s3_File_Hub.service.StorageObject;
+
+/**
+ * Serves the signed URLs the local storage engine hands out in place of presigned S3 URLs.
+ * The signature is the only authorization, exactly like a presigned URL.
+ */
+@RestController
+@RequestMapping("/api/storage")
+@ConditionalOnProperty(name = "storage.engine", havingValue = "local")
+public class LocalStorageController {
+
+    private final LocalStorageEngine storageEngine;
+
+    public LocalStorageController(LocalStorageEngine storageEngine) {
+        this.storageEngine = storageEngine;
+    }
+
+    @GetMapping("/{*key}")
+    public ResponseEntity<StreamingResponseBody> get(
+            @PathVariable String key,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader(value = HttpHeaders.RANGE, required = false) String range,
+            @RequestHeader(value = HttpHeaders.IF_RANGE, required = false) String ifRange) {
+        String objectKey = key.substring(1);
+        if (!storageEngine.verify("GET", objectKey, null, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+
+        StorageObject object;
+        try {
+            object = storageEngine.get(objectKey, range, ifRange);
+        } catch (StorageException e) {
+            return ResponseEntity.status(e.getStatusCode()).build();
+        }
+
+        StreamingResponseBody body = out -> {
+            try (object) {
+                object.transferTo(out);
+            }
+        };
+        ResponseEntity.BodyBuilder builder = object.getContentRange() != null
+                ? ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                        .header(HttpHeaders.CONTENT_RANGE, object.getContentRange())
+                : ResponseEntity.ok();
+        return builder
+                .contentType(object.getContentType() != null
+                        ? MediaType.parseMediaType(object.getContentType())
+                        : MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(object.getContentLength())
+                .eTag(object.getETag())
+                .lastModified(object.getLastModified())
+                .header(HttpHeaders.ACCEPT_RANGES, "bytes")
+                .body(body);
+    }
+
+    @PutMapping("/{*key}")
+    public ResponseEntity<Void> put(
+            @PathVariable String key,
+            @RequestParam long expires,
+            @RequestParam String signature,
+            @RequestHeader(value = HttpHeaders.CONTENT_TYPE, required = false) String contentType,
+            HttpServletRequest request) throws IOException {
+        String objectKey = key.substring(1);
+        if (!storageEngine.verify("PUT", objectKey, contentType, expires, signature)) {
+            return ResponseEntity.status(HttpStatus.FORBIDDEN).build();
+        }
+        if (request.getContentLengthLong() < 0) {
+            return ResponseEntity.status(HttpStatus.LENGTH_REQUIRED).build();
+        }
+
+        String eTag = storageEngine.put(objectKey, request.getInputStream(), request.getContentLengthLong(),
+                contentType);
+        return ResponseEntity.ok().eTag(eTag).build();
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+// List-view projection of an album: no file keys, just enough to render a tile
+@Data
+@NoArgsConstructor
+public class AlbumSummary {
+    private Long id;
+    private String name;
+    private int fileCount;
+    private String shareCode;
+    private LocalDateTime expiresAt;
+    private String coverKey;
+    private String coverThumbnailKey;
+
+    public AlbumSummary(Long id, String name, Integer fileCount, String shareCode, LocalDateTime expiresAt) {
+        this.id = id;
+        this.name = name;
+        this.fileCount = fileCount == null ? 0 : fileCount;
+        this.shareCode = shareCode;
+        this.expiresAt = expiresAt;
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class DeleteResult {
+    private String key;
+    private boolean deleted;
+    // S3 error code and message when the delete failed
+    private String error;
+}
@@ -0,0 +1,16 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+public class FileEntry {
+    private String key;
+    private long size;
+    private String contentType;
+    private LocalDateTime lastModified;
+    private String thumbnailKey;
+}
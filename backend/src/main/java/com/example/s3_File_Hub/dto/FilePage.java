@@ -0,0 +1,14 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class FilePage {
+    private List<FileEntry> items;
+    // Opaque continuation token; null on the last page
+    private String nextCursor;
+}
@@ -0,0 +1,14 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class MultipartUploadInit {
+    private String key;
+    private String uploadId;
+    // Every part except the last must be exactly this size
+    private long partSize;
+    private int partCount;
+}
@@ -0,0 +1,11 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class PresignedPart {
+    private int partNumber;
+    private String url;
+}
@@ -0,0 +1,20 @@
+package com.example.s3_File_Hub.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// What a public share link resolves to: the album plus ready-to-use presigned URLs per file
+@Data
+@AllArgsConstructor
+public class SharedAlbumView {
+    private Long id;
+    private String name;
+    private List<String> fileKeys;
+    private LocalDateTime expiresAt;
+    private Map<String, String> previewUrls;
+    private Map<String, String> thumbnailUrls;
+}
@@ -1,5 +1,6 @@
 package com.example.s3_File_Hub.entity;
 
+import com.example.s3_File_Hub.config.UserChangeListener;
 import jakarta.persistence.*;
 import lombok.*;
 import org.springframework.security.core.GrantedAuthority;
@@ -9,6 +10,7 @@ import java.util.Collection;
 import java.util.List;
 
 @Entity
+@EntityListeners(UserChangeListener.class)
 @Data
 @Table(name = "app_user")
 @Builder
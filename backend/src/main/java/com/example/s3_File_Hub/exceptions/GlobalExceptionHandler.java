@@ -3,6 +3,7 @@ package com.example.s3_File_Hub.exceptions;
 
 
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -22,5 +23,13 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(body, HttpStatus.BAD_REQUEST);  // 400 for user errors
     }
 
+    @ExceptionHandler(StorageException.class)
+    public ResponseEntity<Object> handleStorage(StorageException ex) {
+        Map<String, Object> body = new HashMap<>();
+        body.put("timestamp", LocalDateTime.now());
+        body.put("error", ex.getMessage());
+        return new ResponseEntity<>(body, HttpStatusCode.valueOf(ex.getStatusCode()));  // 404 for missing files
+    }
+
 }
 
@@ -0,0 +1,24 @@
+package com.example.s3_File_Hub.exceptions;
+
+/**
+ * A storage engine refused a request, with the HTTP status S3 would have answered with
+ * (404 for a missing object, 416 for an unsatisfiable range).
+ */
+public class StorageException extends RuntimeException {
+
+    private final int statusCode;
+
+    public StorageException(int statusCode, String message) {
+        super(message);
+        this.statusCode = statusCode;
+    }
+
+    public StorageException(int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    public int getStatusCode() {
+        return statusCode;
+    }
+}
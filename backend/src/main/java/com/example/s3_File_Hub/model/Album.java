@@ -12,7 +12,15 @@ public class Album {
 
     private String name;
 
+    // file_keys is indexed so "which albums contain this file" doesn't scan every album.
+    // file_order keeps the user's ordering; the default lets the column be added to existing rows,
+    // which AlbumService renumbers on startup.
     @ElementCollection
+    @CollectionTable(name = "album_file_keys",
+            joinColumns = @JoinColumn(name = "album_id"),
+            indexes = @Index(name = "idx_album_file_keys_file_keys", columnList = "file_keys"))
+    @Column(name = "file_keys")
+    @OrderColumn(name = "file_order", columnDefinition = "integer default 0")
     private List<String> fileKeys;
 
     @Column(unique = true)
@@ -0,0 +1,46 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Content-addressed object shared by every file with the same bytes
+@Entity
+@Table(name = "blob")
+public class Blob {
+    // Hex SHA-256 of the content
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private long size;
+
+    // Number of file_metadata rows pointing at this blob; the object is deleted when it drops to 0
+    private int refCount;
+
+    // Reconciliation leaves recently acquired blobs alone, their uploads may not be indexed yet
+    private LocalDateTime lastAcquiredAt;
+
+    public Blob() {}
+
+    // Getters and Setters
+
+    public String getHash() {
+        return hash;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public int getRefCount() {
+        return refCount;
+    }
+
+    public void setRefCount(int refCount) {
+        this.refCount = refCount;
+    }
+
+    public LocalDateTime getLastAcquiredAt() {
+        return lastAcquiredAt;
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "file_metadata", indexes = {
+        @Index(name = "idx_file_metadata_owner", columnList = "owner"),
+        @Index(name = "idx_file_metadata_uploaded_at", columnList = "uploadedAt, id"),
+        @Index(name = "idx_file_metadata_content_hash", columnList = "contentHash")
+})
+public class FileMetadata {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 1024)
+    private String objectKey;
+
+    private long size;
+
+    private String contentType;
+
+    // Email of the uploader; null for objects picked up by reconciliation
+    private String owner;
+
+    private LocalDateTime uploadedAt;
+
+    @Column(length = 1024)
+    private String thumbnailKey;
+
+    private String eTag;
+
+    // SHA-256 of the content when it is stored as a shared blob; null when stored under objectKey itself
+    @Column(length = 64)
+    private String contentHash;
+
+    public FileMetadata() {}
+
+    public FileMetadata(String objectKey, long size, String contentType, String owner, String eTag) {
+        this.objectKey = objectKey;
+        this.size = size;
+        this.contentType = contentType;
+        this.owner = owner;
+        this.eTag = eTag;
+        this.uploadedAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public void setObjectKey(String objectKey) {
+        this.objectKey = objectKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public LocalDateTime getUploadedAt() {
+        return uploadedAt;
+    }
+
+    public void setUploadedAt(LocalDateTime uploadedAt) {
+        this.uploadedAt = uploadedAt;
+    }
+
+    public String getThumbnailKey() {
+        return thumbnailKey;
+    }
+
+    public void setThumbnailKey(String thumbnailKey) {
+        this.thumbnailKey = thumbnailKey;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public void setETag(String eTag) {
+        this.eTag = eTag;
+    }
+
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Progress of moving objects to the hashed key layout, so a restarted migration resumes where it stopped
+@Entity
+@Table(name = "key_migration_checkpoint")
+public class KeyMigrationCheckpoint {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    // Last flat key of the last fully migrated batch, in listing order; null to start from the beginning.
+    // Every name up to it has moved, except those in key_migration_failure
+    @Column(length = 1024)
+    private String lastKey;
+
+    // Set once the whole bucket has been listed; from then on only failed names are left to move
+    private boolean listed;
+
+    private long moved;
+
+    private long failed;
+
+    private boolean completed;
+
+    private LocalDateTime updatedAt;
+
+    public KeyMigrationCheckpoint() {}
+
+    public KeyMigrationCheckpoint(String name) {
+        this.name = name;
+    }
+
+    // Getters and Setters
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLastKey() {
+        return lastKey;
+    }
+
+    public void setLastKey(String lastKey) {
+        this.lastKey = lastKey;
+    }
+
+    public boolean isListed() {
+        return listed;
+    }
+
+    public void setListed(boolean listed) {
+        this.listed = listed;
+    }
+
+    public long getMoved() {
+        return moved;
+    }
+
+    public void setMoved(long moved) {
+        this.moved = moved;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// Flat name the key layout migration failed to move; retried until it has moved
+@Entity
+@Table(name = "key_migration_failure")
+public class KeyMigrationFailure {
+    @Id
+    @Column(length = 1024)
+    private String name;
+
+    private LocalDateTime failedAt;
+
+    public KeyMigrationFailure() {}
+
+    public KeyMigrationFailure(String name) {
+        this.name = name;
+        this.failedAt = LocalDateTime.now();
+    }
+
+    // Getters
+
+    public String getName() {
+        return name;
+    }
+
+    public LocalDateTime getFailedAt() {
+        return failedAt;
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+// A direct multipart upload that was created but not yet completed or aborted, and who started it
+@Entity
+@Table(name = "multipart_upload", indexes = {
+        @Index(name = "idx_multipart_upload_created_at", columnList = "createdAt")
+})
+public class MultipartUpload {
+    @Id
+    @Column(length = 1024)
+    private String uploadId;
+
+    @Column(nullable = false, length = 1024)
+    private String objectKey;
+
+    @Column(nullable = false)
+    private String owner;
+
+    private LocalDateTime createdAt;
+
+    public MultipartUpload() {}
+
+    public MultipartUpload(String uploadId, String objectKey, String owner) {
+        this.uploadId = uploadId;
+        this.objectKey = objectKey;
+        this.owner = owner;
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters
+
+    public String getUploadId() {
+        return uploadId;
+    }
+
+    public String getObjectKey() {
+        return objectKey;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
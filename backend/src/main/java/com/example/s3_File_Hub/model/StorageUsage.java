@@ -0,0 +1,42 @@
+package com.example.s3_File_Hub.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "storage_usage")
+public class StorageUsage {
+    public static final String GLOBAL = "*";
+
+    // Owner email, or StorageUsage.GLOBAL for the bucket-wide counter
+    @Id
+    private String owner;
+
+    private long usedBytes;
+
+    // Reconciliation leaves recently changed counters alone, their uploads may not be indexed yet
+    private LocalDateTime lastChangedAt;
+
+    public StorageUsage() {}
+
+    public StorageUsage(String owner, long usedBytes) {
+        this.owner = owner;
+        this.usedBytes = usedBytes;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public LocalDateTime getLastChangedAt() {
+        return lastChangedAt;
+    }
+}
@@ -1,12 +1,61 @@
 package com.example.s3_File_Hub.repository;
 
+import com.example.s3_File_Hub.dto.AlbumSummary;
 import com.example.s3_File_Hub.model.Album;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface AlbumRepository extends JpaRepository<Album, Long> {
     boolean existsByName(String name);
 
+    // fileKeys are fetched in the same query, avoiding one extra select per album
+    @Override
+    @EntityGraph(attributePaths = "fileKeys")
+    List<Album> findAll();
+
+    @Override
+    @EntityGraph(attributePaths = "fileKeys")
+    Optional<Album> findById(Long id);
+
+    @EntityGraph(attributePaths = "fileKeys")
     Optional<Album> findByShareCode(String code);
+
+    @Query("select new com.example.s3_File_Hub.dto.AlbumSummary(a.id, a.name, size(a.fileKeys), a.shareCode, a.expiresAt) " +
+            "from Album a order by a.id desc")
+    List<AlbumSummary> findSummaries(Pageable pageable);
+
+    @Query("select a.id, k from Album a join a.fileKeys k where a.id in :albumIds and index(k) = 0")
+    List<Object[]> findCoverKeys(@Param("albumIds") Collection<Long> albumIds);
+
+    @Query("select distinct a.id from Album a join a.fileKeys k where k in :fileKeys")
+    List<Long> findIdsByFileKeys(@Param("fileKeys") Collection<String> fileKeys);
+
+    @Modifying
+    @Query(value = "delete from album_file_keys where file_keys in (:fileKeys)", nativeQuery = true)
+    int deleteFileKeys(@Param("fileKeys") Collection<String> fileKeys);
+
+    // Renumbering goes through negative values first so (album_id, file_order) never collides mid-update
+    @Modifying
+    @Query(value = "update album_file_keys t set file_order = -1 - s.rn " +
+            "from (select ctid as row_id, row_number() over (partition by album_id order by file_order, ctid) - 1 as rn " +
+            "      from album_file_keys where album_id in (:albumIds)) s " +
+            "where t.ctid = s.row_id", nativeQuery = true)
+    int stageFileKeyOrder(@Param("albumIds") Collection<Long> albumIds);
+
+    @Modifying
+    @Query(value = "update album_file_keys set file_order = -1 - file_order " +
+            "where album_id in (:albumIds) and file_order < 0", nativeQuery = true)
+    int applyFileKeyOrder(@Param("albumIds") Collection<Long> albumIds);
+
+    @Query(value = "select album_id from album_file_keys group by album_id " +
+            "having count(distinct file_order) < count(*) or max(file_order) <> count(*) - 1", nativeQuery = true)
+    List<Long> findAlbumIdsWithGapsInFileOrder();
 }
\ No newline at end of file
@@ -0,0 +1,49 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.Blob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BlobRepository extends JpaRepository<Blob, String> {
+
+    // Takes a reference, creating the row on first use; a released blob (count 0) is left alone until it is deleted
+    @Modifying(clearAutomatically = true)
+    @Query(value = "insert into blob (hash, size, ref_count, last_acquired_at) values (:hash, :size, 1, now()) " +
+            "on conflict (hash) do update set ref_count = blob.ref_count + 1, last_acquired_at = now() " +
+            "where blob.ref_count > 0",
+            nativeQuery = true)
+    void acquire(@Param("hash") String hash, @Param("size") long size);
+
+    @Modifying(clearAutomatically = true)
+    @Query("update Blob b set b.refCount = b.refCount - 1 where b.hash = :hash")
+    int decrement(@Param("hash") String hash);
+
+    // Resets counts to the number of indexed files per blob, skipping blobs with uploads possibly in flight
+    // and released ones, whose object may already be gone
+    @Modifying(clearAutomatically = true)
+    @Transactional
+    @Query(value = "update blob set ref_count = (select count(*) from file_metadata f where f.content_hash = blob.hash) " +
+            "where ref_count > 0 and last_acquired_at < :acquiredBefore " +
+            "and ref_count <> (select count(*) from file_metadata f where f.content_hash = blob.hash)",
+            nativeQuery = true)
+    int recountReferences(@Param("acquiredBefore") LocalDateTime acquiredBefore);
+
+    List<Blob> findByRefCountLessThanEqual(int refCount);
+
+    // Removes a released blob once its object is gone; runs after the releasing transaction has committed
+    @Modifying
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Query("delete from Blob b where b.hash = :hash and b.refCount <= 0")
+    int deleteReleased(@Param("hash") String hash);
+
+    // Released blobs waiting for their object to be deleted were already given back
+    @Query("select coalesce(sum(b.size), 0) from Blob b where b.refCount > 0")
+    long sumSize();
+}
@@ -0,0 +1,52 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.FileMetadata;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface FileMetadataRepository extends JpaRepository<FileMetadata, Long> {
+    Optional<FileMetadata> findByObjectKey(String objectKey);
+
+    List<FileMetadata> findByObjectKeyIn(Collection<String> objectKeys);
+
+    // Keyset pagination on (uploadedAt, id): each page continues strictly after the last row seen
+    @Query("select f from FileMetadata f " +
+            "where f.objectKey like :prefix escape '!' and coalesce(f.contentType, '') like :contentType " +
+            "and (f.uploadedAt < :uploadedAt or (f.uploadedAt = :uploadedAt and f.id < :id)) " +
+            "order by f.uploadedAt desc, f.id desc")
+    List<FileMetadata> findPageNewestFirst(@Param("prefix") String prefix,
+                                           @Param("contentType") String contentType,
+                                           @Param("uploadedAt") LocalDateTime uploadedAt,
+                                           @Param("id") Long id,
+                                           Pageable limit);
+
+    @Query("select f from FileMetadata f " +
+            "where f.objectKey like :prefix escape '!' and coalesce(f.contentType, '') like :contentType " +
+            "and (f.uploadedAt > :uploadedAt or (f.uploadedAt = :uploadedAt and f.id > :id)) " +
+            "order by f.uploadedAt asc, f.id asc")
+    List<FileMetadata> findPageOldestFirst(@Param("prefix") String prefix,
+                                           @Param("contentType") String contentType,
+                                           @Param("uploadedAt") LocalDateTime uploadedAt,
+                                           @Param("id") Long id,
+                                           Pageable limit);
+
+    @Query("select f.objectKey from FileMetadata f order by f.id desc")
+    List<String> findAllKeys();
+
+    @Query("select f.thumbnailKey from FileMetadata f where f.thumbnailKey is not null order by f.id desc")
+    List<String> findAllThumbnailKeys();
+
+    // Files stored under their own key; shared blobs are summed separately
+    @Query("select coalesce(sum(f.size), 0) from FileMetadata f where f.contentHash is null")
+    long sumUnsharedSize();
+
+    @Query("select f.owner, sum(f.size) from FileMetadata f where f.owner is not null group by f.owner")
+    List<Object[]> sumSizeByOwner();
+}
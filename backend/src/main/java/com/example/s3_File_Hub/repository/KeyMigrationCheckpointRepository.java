@@ -0,0 +1,7 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.KeyMigrationCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface KeyMigrationCheckpointRepository extends JpaRepository<KeyMigrationCheckpoint, String> {
+}
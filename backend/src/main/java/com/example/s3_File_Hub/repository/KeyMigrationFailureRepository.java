@@ -0,0 +1,13 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.KeyMigrationFailure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.List;
+
+public interface KeyMigrationFailureRepository extends JpaRepository<KeyMigrationFailure, String> {
+
+    @Query("select f.name from KeyMigrationFailure f")
+    List<String> findAllNames();
+}
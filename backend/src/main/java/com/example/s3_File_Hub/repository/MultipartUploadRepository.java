@@ -0,0 +1,24 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.MultipartUpload;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+public interface MultipartUploadRepository extends JpaRepository<MultipartUpload, String> {
+
+    // Returns 1 for exactly one caller, so concurrent completes of one upload reserve its quota once
+    @Modifying
+    @Transactional
+    @Query("delete from MultipartUpload u where u.uploadId = :uploadId")
+    int claim(@Param("uploadId") String uploadId);
+
+    @Modifying
+    @Transactional
+    @Query("delete from MultipartUpload u where u.createdAt < :createdBefore")
+    int deleteCreatedBefore(@Param("createdBefore") LocalDateTime createdBefore);
+}
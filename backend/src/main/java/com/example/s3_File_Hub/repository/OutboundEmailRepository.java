@@ -0,0 +1,18 @@
+package com.example.s3_File_Hub.repository;
+
+import com.example.s3_File_Hub.model.OutboundEmail;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    // SKIP LOCKED lets several instances drain the outbox without sending a message twice
+    @Query(value = "select * from outbound_email where status = 'PENDING' and next_attempt_at <= now() " +
+            "order by id limit :limit for update skip locked", nativeQuery = true)
+    List<OutboundEmail> lockDueBatch(@Param("limit") int limit);
+
+    long countByStatus(OutboundEmail.Status status);
+}
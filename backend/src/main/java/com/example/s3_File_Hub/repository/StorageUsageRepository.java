@@ -0,0 +1,40 @@
+package com.example.s3_File_Hub.repository;
+
+import java.time.LocalDateTime;
+
+import com.example.s3_File_Hub.model.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, String> {
+
+    @Modifying
+    @Query(value = "insert into storage_usage (owner, used_bytes) values (:owner, 0) on conflict do nothing",
+            nativeQuery = true)
+    void ensureExists(@Param("owner") String owner);
+
+    // Single conditional UPDATE, so concurrent reservations can't both slip under the limit
+    @Modifying
+    @Query(value = "update storage_usage set used_bytes = used_bytes + :delta, last_changed_at = now() " +
+            "where owner = :owner and used_bytes + :delta <= :limit",
+            nativeQuery = true)
+    int tryAdd(@Param("owner") String owner, @Param("delta") long delta, @Param("limit") long limit);
+
+    @Modifying
+    @Query(value = "update storage_usage set used_bytes = used_bytes + :delta, last_changed_at = now() " +
+            "where owner = :owner",
+            nativeQuery = true)
+    int add(@Param("owner") String owner, @Param("delta") long delta);
+
+    // Sets a counter counted from the file index, unless it changed since changedBefore: a reservation
+    // made after that may not be indexed yet, or may have landed after the index was summed
+    @Modifying
+    @Query(value = "update storage_usage set used_bytes = :usedBytes " +
+            "where owner = :owner and used_bytes <> :usedBytes " +
+            "and (last_changed_at is null or last_changed_at < :changedBefore)",
+            nativeQuery = true)
+    int reset(@Param("owner") String owner, @Param("usedBytes") long usedBytes,
+              @Param("changedBefore") LocalDateTime changedBefore);
+}
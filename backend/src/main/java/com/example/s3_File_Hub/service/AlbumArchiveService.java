@@ -0,0 +1,155 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Streams a list of files as a ZIP archive built on the fly. The next few objects are opened in
+ * parallel while the current one is copied, so the storage's time to first byte overlaps with writing,
+ * and memory stays constant: nothing is buffered beyond the copy buffer and the open connections.
+ * Objects are read from storage directly rather than through the {@link ObjectCache}, so a one-off
+ * archive neither waits for cache fills nor competes with them.
+ */
+@Service
+@Slf4j
+public class AlbumArchiveService {
+
+    // Reads of one object, resuming with a ranged GET from where the previous one broke off
+    private static final int MAX_ATTEMPTS = 3;
+
+    private static final int UUID_LENGTH = 36;
+
+    private final StorageEngine storageEngine;
+    private final FileIndexService fileIndexService;
+    private final ExecutorService transferExecutor;
+    private final LongTaskTimer downloadTimer;
+
+    @Value("${albums.archive.prefetch:4}")
+    private int prefetch;
+
+    public AlbumArchiveService(StorageEngine storageEngine, FileIndexService fileIndexService,
+                               @Qualifier("transferExecutor") ExecutorService transferExecutor,
+                               MeterRegistry meterRegistry) {
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.transferExecutor = transferExecutor;
+        this.downloadTimer = LongTaskTimer.builder("files.downloads").tag("type", "archive").register(meterRegistry);
+    }
+
+    public void writeZip(List<String> keys, OutputStream out) throws IOException {
+        LongTaskTimer.Sample download = downloadTimer.start();
+        try {
+            writeEntries(keys, out);
+        } finally {
+            download.stop();
+        }
+    }
+
+    private void writeEntries(List<String> keys, OutputStream out) throws IOException {
+        // One index lookup for the whole album instead of one per file
+        Map<String, String> storageKeys = fileIndexService.storageKeys(keys);
+        Deque<CompletableFuture<StorageObject>> window = new ArrayDeque<>();
+        int next = 0;
+        Set<String> entryNames = new HashSet<>();
+
+        // Objects are already compressed media, so entries are written without compression.
+        // Level 0 deflate rather than STORED: STORED needs each entry's CRC before its data.
+        ZipOutputStream zip = new ZipOutputStream(out);
+        zip.setLevel(Deflater.NO_COMPRESSION);
+        try {
+            for (String key : keys) {
+                while (next < keys.size() && window.size() < Math.max(1, prefetch)) {
+                    String storageKey = storageKeys.get(keys.get(next++));
+                    window.add(CompletableFuture.supplyAsync(
+                            () -> storageEngine.get(storageKey, null, null), transferExecutor));
+                }
+
+                StorageObject object;
+                try {
+                    object = window.poll().join();
+                } catch (CompletionException e) {
+                    // Deleted since the album was loaded; the archive is already being sent, so skip it
+                    log.warn("Skipping {} in album archive", key, e.getCause());
+                    continue;
+                }
+
+                zip.putNextEntry(new ZipEntry(entryName(key, entryNames)));
+                copy(storageKeys.get(key), object, zip);
+                zip.closeEntry();
+            }
+            zip.finish();
+        } finally {
+            // Close whatever is still prefetched when the client goes away mid-download
+            window.forEach(future -> future.thenAccept(StorageObject::abort));
+        }
+    }
+
+    private void copy(String storageKey, StorageObject object, OutputStream out) throws IOException {
+        byte[] buffer = new byte[8192];
+        long written = 0;
+        StorageObject in = object;
+        try {
+            for (int attempt = 1; ; ) {
+                int read;
+                try {
+                    read = in.read(buffer);
+                } catch (IOException | RuntimeException e) {
+                    // Prefetched connections can time out while a long video ahead of them is copied
+                    if (attempt++ == MAX_ATTEMPTS) {
+                        throw e instanceof IOException io ? io : new IOException(e);
+                    }
+                    in.abort();
+                    in = storageEngine.get(storageKey, "bytes=" + written + "-", null);
+                    continue;
+                }
+                if (read == -1) {
+                    in.close();
+                    return;
+                }
+                out.write(buffer, 0, read);
+                written += read;
+            }
+        } catch (IOException | RuntimeException e) {
+            in.abort();
+            throw e;
+        }
+    }
+
+    // Original file name without the upload's UUID prefix, made unique within the archive
+    static String entryName(String key, Set<String> used) {
+        String name = key.substring(key.lastIndexOf('/') + 1);
+        int separator = name.indexOf('_');
+        if (separator == UUID_LENGTH) {
+            name = name.substring(separator + 1);
+        }
+
+        String candidate = name;
+        int dot = name.lastIndexOf('.');
+        for (int i = 1; !used.add(candidate); i++) {
+            candidate = dot > 0
+                    ? name.substring(0, dot) + " (" + i + ")" + name.substring(dot)
+                    : name + " (" + i + ")";
+        }
+        return candidate;
+    }
+}
@@ -1,21 +1,35 @@
 package com.example.s3_File_Hub.service;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import java.util.UUID;
 
+import com.example.s3_File_Hub.dto.AlbumSummary;
 import com.example.s3_File_Hub.model.Album;
 import com.example.s3_File_Hub.repository.AlbumRepository;
 
 @Service
 public class AlbumService {
     private final AlbumRepository albumRepository;
+    private final FileIndexService fileIndexService;
+    private final ApplicationEventPublisher eventPublisher;
 
-    public AlbumService(AlbumRepository albumRepository) {
+    public AlbumService(AlbumRepository albumRepository, FileIndexService fileIndexService,
+                        ApplicationEventPublisher eventPublisher) {
         this.albumRepository = albumRepository;
+        this.fileIndexService = fileIndexService;
+        this.eventPublisher = eventPublisher;
     }
 
 
@@ -38,12 +52,59 @@ public class AlbumService {
         return albumRepository.findAll();
     }
 
-    public void removeFileFromAlbums(String fileKey) {
-        List<Album> albums = albumRepository.findAll();
-        for (Album album : albums) {
-            if (album.getFileKeys().remove(fileKey)) {
-                albumRepository.save(album);
-            }
+    public List<AlbumSummary> listAlbumSummaries(int page, int size) {
+        List<AlbumSummary> summaries = albumRepository.findSummaries(PageRequest.of(page, size));
+        if (summaries.isEmpty()) {
+            return summaries;
+        }
+
+        Map<Long, String> coverKeys = new HashMap<>();
+        for (Object[] row : albumRepository.findCoverKeys(summaries.stream().map(AlbumSummary::getId).toList())) {
+            coverKeys.put((Long) row[0], (String) row[1]);
+        }
+        Map<String, String> thumbnails = fileIndexService.thumbnailKeys(coverKeys.values());
+
+        for (AlbumSummary summary : summaries) {
+            String coverKey = coverKeys.get(summary.getId());
+            summary.setCoverKey(coverKey);
+            summary.setCoverThumbnailKey(coverKey == null ? null : thumbnails.get(coverKey));
+        }
+        return summaries;
+    }
+
+    @Transactional
+    public List<Long> removeFileFromAlbums(String fileKey) {
+        return removeFilesFromAlbums(List.of(fileKey));
+    }
+
+    // Returns the ids of the albums that contained any of the keys
+    @Transactional
+    public List<Long> removeFilesFromAlbums(Collection<String> fileKeys) {
+        if (fileKeys.isEmpty()) {
+            return List.of();
+        }
+        List<Long> albumIds = albumRepository.findIdsByFileKeys(fileKeys);
+        if (!albumIds.isEmpty()) {
+            albumRepository.deleteFileKeys(fileKeys);
+            renumberFileKeys(albumIds);
+            eventPublisher.publishEvent(new AlbumsChangedEvent(albumIds));
+        }
+        return albumIds;
+    }
+
+    // A bulk delete leaves holes in file_order, which Hibernate would load as null list entries
+    private void renumberFileKeys(Collection<Long> albumIds) {
+        albumRepository.stageFileKeyOrder(albumIds);
+        albumRepository.applyFileKeyOrder(albumIds);
+    }
+
+    // Rows that predate file_order all start at 0; give them their positions once at startup
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void normalizeFileKeyOrder() {
+        List<Long> albumIds = albumRepository.findAlbumIdsWithGapsInFileOrder();
+        if (!albumIds.isEmpty()) {
+            renumberFileKeys(albumIds);
         }
     }
 
@@ -53,6 +114,7 @@ public class AlbumService {
 
     public void deleteAlbum(Long id) {
         albumRepository.deleteById(id);
+        eventPublisher.publishEvent(new AlbumsChangedEvent(List.of(id)));
     }
 
     public Optional<Album> getAlbumByShareCode(String code) {
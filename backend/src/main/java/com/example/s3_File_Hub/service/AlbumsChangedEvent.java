@@ -0,0 +1,6 @@
+package com.example.s3_File_Hub.service;
+
+import java.util.Collection;
+
+// Published by AlbumService whenever the content of existing albums changes or albums are deleted
+public record AlbumsChangedEvent(Collection<Long> albumIds) {}
@@ -14,6 +14,7 @@ import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 @Service
 @RequiredArgsConstructor
@@ -26,6 +27,7 @@ public class AuthService {
     private final AuthenticationManager authenticationManager;
     private final EmailService emailService;
 
+    @Transactional
     public AuthResponse register(RegisterRequest request) {
         if (userRepository.findByEmail(request.getEmail()).isPresent()) {
             throw new RuntimeException("User already registered with this email.");
@@ -43,7 +45,7 @@ public class AuthService {
         String verificationLink = "http://localhost:8080/api/auth/verify?email=" + user.getEmail();
         emailService.sendEmail(user.getEmail(), "Email Verification", "Click to verify your account: " + verificationLink);
 
-        log.info("Verification email sent to {}", user.getEmail());
+        log.info("Verification email queued for {}", user.getEmail());
         return new AuthResponse("", "Verification email sent.");
     }
 
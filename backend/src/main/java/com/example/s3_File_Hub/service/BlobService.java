@@ -0,0 +1,135 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.s3_File_Hub.model.Blob;
+import com.example.s3_File_Hub.repository.BlobRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Content-addressed storage: identical uploads share one object under blobs/{sha256}, and each
+ * file holding it counts as a reference. The blob row is created with the first reference. When the
+ * last one is released the row stays behind with a count of 0 until its object has been deleted,
+ * after the releasing transaction commits; meanwhile it can't be acquired again. The global storage
+ * counter follows the blobs, so a duplicate only counts against its uploader's own quota.
+ */
+@Service
+@Slf4j
+public class BlobService {
+
+    static final String BLOB_PREFIX = "blobs/";
+
+    private final BlobRepository blobRepository;
+    private final StorageEngine storageEngine;
+    private final ObjectCache objectCache;
+
+    // Longer than any upload takes between acquiring its blob and being indexed
+    @Value("${blobs.reconcile-grace-minutes:60}")
+    private long reconcileGraceMinutes;
+
+    public BlobService(BlobRepository blobRepository, StorageEngine storageEngine, ObjectCache objectCache) {
+        this.blobRepository = blobRepository;
+        this.storageEngine = storageEngine;
+        this.objectCache = objectCache;
+    }
+
+    public static String sha256(InputStream in) throws IOException {
+        try {
+            DigestInputStream digestStream = new DigestInputStream(in, MessageDigest.getInstance("SHA-256"));
+            digestStream.transferTo(OutputStream.nullOutputStream());
+            return HexFormat.of().formatHex(digestStream.getMessageDigest().digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Takes a reference on the blob and returns the new reference count;
+     * 1 means the blob was just created and its content still has to be stored.
+     * 0 means the blob was released and is being deleted: no reference was taken, and the
+     * content has to be stored elsewhere.
+     */
+    @Transactional
+    public int acquire(String hash, long size) {
+        blobRepository.acquire(hash, size);
+        // Gone when its deletion finished in between
+        return blobRepository.findById(hash)
+                .map(blob -> Math.max(blob.getRefCount(), 0))
+                .orElse(0);
+    }
+
+    /**
+     * Drops a reference and returns true when it was the last one and the blob is gone. The object
+     * is deleted once the transaction has committed, so the row isn't locked during the request to
+     * storage; if that fails, {@link #reconcile} deletes it later.
+     */
+    @Transactional
+    public boolean release(String hash) {
+        if (blobRepository.decrement(hash) == 0) {
+            return false;
+        }
+        Blob blob = blobRepository.findById(hash).orElse(null);
+        if (blob == null || blob.getRefCount() != 0) {
+            return false;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    delete(hash);
+                } catch (Exception e) {
+                    log.warn("Failed to delete released blob {}; reconciliation retries", hash, e);
+                }
+            }
+        });
+        return true;
+    }
+
+    // ETag of the stored blob, or null when its object hasn't been written (yet)
+    public String eTag(String hash) {
+        StorageEngine.ObjectInfo object = storageEngine.stat(blobKeyFor(hash));
+        return object == null ? null : object.eTag();
+    }
+
+    @Scheduled(initialDelayString = "${blobs.reconcile-initial-delay-ms:180000}",
+            fixedDelayString = "${blobs.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        int corrected = blobRepository.recountReferences(LocalDateTime.now().minusMinutes(reconcileGraceMinutes));
+        int deleted = 0;
+        for (Blob blob : blobRepository.findByRefCountLessThanEqual(0)) {
+            try {
+                delete(blob.getHash());
+                deleted++;
+            } catch (Exception e) {
+                log.warn("Failed to delete released blob {}", blob.getHash(), e);
+            }
+        }
+        log.info("Blob references reconciled: {} corrected, {} deleted", corrected, deleted);
+    }
+
+    // The object goes first: a row left behind by a failure is retried, an object would be orphaned
+    private void delete(String hash) {
+        storageEngine.delete(blobKeyFor(hash));
+        objectCache.invalidate(blobKeyFor(hash));
+        blobRepository.deleteReleased(hash);
+    }
+
+    static String blobKeyFor(String hash) {
+        return BLOB_PREFIX + hash;
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+
+// Range / If-Range handling for content served from local bytes, following S3's rules
+final class ByteRanges {
+
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d*)-(\\d*)");
+
+    private ByteRanges() {}
+
+    // A strong ETag must match, a date must not be older than the object
+    static boolean ifRangeMatches(String ifRange, String eTag, Instant lastModified) {
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        try {
+            Instant date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            return !lastModified.truncatedTo(ChronoUnit.SECONDS).isAfter(date);
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // First and last byte of a single range, or null when the header is ignored and the whole object sent
+    static long[] bounds(String key, String range, long size) {
+        Matcher matcher = RANGE.matcher(range);
+        if (!matcher.matches() || (matcher.group(1).isEmpty() && matcher.group(2).isEmpty())) {
+            return null;
+        }
+
+        long first, last;
+        if (matcher.group(1).isEmpty()) {
+            long suffix = Long.parseLong(matcher.group(2));
+            first = suffix == 0 ? size : Math.max(0, size - suffix);
+            last = size - 1;
+        } else {
+            first = Long.parseLong(matcher.group(1));
+            last = matcher.group(2).isEmpty() ? size - 1 : Math.min(Long.parseLong(matcher.group(2)), size - 1);
+            if (last < first && first < size) {
+                return null;
+            }
+        }
+        if (first >= size) {
+            throw new StorageException(416, "Range " + range + " not satisfiable for " + key);
+        }
+        return new long[]{first, last};
+    }
+
+    static String contentRange(long[] bounds, long size) {
+        return "bytes " + bounds[0] + "-" + bounds[1] + "/" + size;
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.LocalDateTime;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.s3_File_Hub.model.OutboundEmail;
+import com.example.s3_File_Hub.repository.OutboundEmailRepository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Drains the outbound_email table. Each run locks a batch of due messages and hands them to
+ * JavaMailSender in one call, which sends the whole batch over a single SMTP connection.
+ * Failed messages are retried with exponential backoff until max-attempts is reached.
+ */
+@Service
+@Slf4j
+public class EmailOutboxSender {
+
+    private final OutboundEmailRepository outboundEmailRepository;
+    private final JavaMailSender mailSender;
+    private final AtomicLong pending = new AtomicLong();
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.retry-backoff-seconds:30}")
+    private long retryBackoffSeconds;
+
+    public EmailOutboxSender(OutboundEmailRepository outboundEmailRepository, JavaMailSender mailSender,
+                             MeterRegistry meterRegistry) {
+        this.outboundEmailRepository = outboundEmailRepository;
+        this.mailSender = mailSender;
+        meterRegistry.gauge("email.outbox.pending", pending);
+        this.sentCounter = meterRegistry.counter("email.outbox.sent");
+        this.failedCounter = meterRegistry.counter("email.outbox.failed");
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:2000}")
+    @Transactional
+    public void drain() {
+        List<OutboundEmail> batch = outboundEmailRepository.lockDueBatch(batchSize);
+        if (!batch.isEmpty()) {
+            send(batch);
+        }
+        pending.set(outboundEmailRepository.countByStatus(OutboundEmail.Status.PENDING));
+    }
+
+    private void send(List<OutboundEmail> batch) {
+        Map<SimpleMailMessage, OutboundEmail> byMessage = new IdentityHashMap<>();
+        for (OutboundEmail email : batch) {
+            SimpleMailMessage message = new SimpleMailMessage();
+            message.setTo(email.getRecipient());
+            message.setSubject(email.getSubject());
+            message.setText(email.getBody());
+            byMessage.put(message, email);
+        }
+
+        Map<Object, Exception> failures = Map.of();
+        try {
+            mailSender.send(byMessage.keySet().toArray(new SimpleMailMessage[0]));
+        } catch (MailSendException e) {
+            failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                failures = allFailed(byMessage, e);
+            }
+        } catch (MailException e) {
+            // Connection or authentication problem: nothing in the batch went out
+            failures = allFailed(byMessage, e);
+        }
+
+        for (Map.Entry<SimpleMailMessage, OutboundEmail> entry : byMessage.entrySet()) {
+            OutboundEmail email = entry.getValue();
+            email.setAttempts(email.getAttempts() + 1);
+            Exception failure = failures.get(entry.getKey());
+            if (failure == null) {
+                email.setStatus(OutboundEmail.Status.SENT);
+                email.setLastError(null);
+                sentCounter.increment();
+            } else {
+                retryLater(email, failure);
+            }
+        }
+    }
+
+    private void retryLater(OutboundEmail email, Exception failure) {
+        String message = String.valueOf(failure.getMessage());
+        email.setLastError(message.length() > 1000 ? message.substring(0, 1000) : message);
+        if (email.getAttempts() >= maxAttempts) {
+            email.setStatus(OutboundEmail.Status.FAILED);
+            failedCounter.increment();
+            log.warn("Giving up on email {} to {} after {} attempts", email.getId(), email.getRecipient(),
+                    email.getAttempts());
+        } else {
+            long delay = retryBackoffSeconds << (email.getAttempts() - 1);
+            email.setNextAttemptAt(LocalDateTime.now().plusSeconds(delay));
+        }
+    }
+
+    private static Map<Object, Exception> allFailed(Map<SimpleMailMessage, OutboundEmail> byMessage, Exception e) {
+        Map<Object, Exception> failures = new IdentityHashMap<>();
+        byMessage.keySet().forEach(message -> failures.put(message, e));
+        return failures;
+    }
+}
@@ -1,22 +1,19 @@
 package com.example.s3_File_Hub.service;
 
 
+import com.example.s3_File_Hub.model.OutboundEmail;
+import com.example.s3_File_Hub.repository.OutboundEmailRepository;
 import lombok.RequiredArgsConstructor;
-import org.springframework.mail.SimpleMailMessage;
-import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-    private final JavaMailSender mailSender;
+    private final OutboundEmailRepository outboundEmailRepository;
 
+    // Queues the message in the outbox; EmailOutboxSender delivers it in the background
     public void sendEmail(String to, String subject, String body) {
-        SimpleMailMessage message = new SimpleMailMessage();
-        message.setTo(to);
-        message.setSubject(subject);
-        message.setText(body);
-        mailSender.send(message);
+        outboundEmailRepository.save(new OutboundEmail(to, subject, body));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,287 @@
+package com.example.s3_File_Hub.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.s3_File_Hub.dto.FileEntry;
+import com.example.s3_File_Hub.dto.FilePage;
+import com.example.s3_File_Hub.model.FileMetadata;
+import com.example.s3_File_Hub.repository.FileMetadataRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Database index of the objects in storage, so listings and stats don't need to scan it.
+ * Upload and delete paths keep it current; {@link #reconcile()} periodically repairs drift
+ * (presigned browser uploads, manual bucket changes).
+ */
+@Service
+@Slf4j
+public class FileIndexService {
+
+    static final String THUMBNAIL_PREFIX = "thumbnails/";
+
+    // Starting points for the first page in each direction (inside PostgreSQL's timestamp range)
+    private static final LocalDateTime LATEST = LocalDateTime.of(9999, 12, 31, 0, 0);
+    private static final LocalDateTime EARLIEST = LocalDateTime.of(1, 1, 1, 0, 0);
+
+    // Rows changed per transaction when applying a reconciliation
+    static final int RECONCILE_BATCH_SIZE = 500;
+
+    private final FileMetadataRepository fileMetadataRepository;
+    private final StorageEngine storageEngine;
+    private final TransactionTemplate transactionTemplate;
+
+    public FileIndexService(FileMetadataRepository fileMetadataRepository, StorageEngine storageEngine,
+                            PlatformTransactionManager transactionManager) {
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.storageEngine = storageEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional
+    public FileMetadata record(String key, long size, String contentType, String owner, String eTag) {
+        return record(key, size, contentType, owner, eTag, null);
+    }
+
+    @Transactional
+    public FileMetadata record(String key, long size, String contentType, String owner, String eTag,
+                               String contentHash) {
+        FileMetadata metadata = fileMetadataRepository.findByObjectKey(key)
+                .orElseGet(() -> new FileMetadata(key, size, contentType, owner, eTag));
+        metadata.setSize(size);
+        metadata.setContentType(contentType);
+        metadata.setETag(eTag);
+        metadata.setContentHash(contentHash);
+        return fileMetadataRepository.save(metadata);
+    }
+
+    public Optional<FileMetadata> find(String key) {
+        return fileMetadataRepository.findByObjectKey(key);
+    }
+
+    // Where the bytes behind a file key live in the bucket; keys that aren't indexed map to themselves
+    public String storageKey(String key) {
+        if (key.startsWith(THUMBNAIL_PREFIX)) {
+            return key;
+        }
+        return find(key).map(FileIndexService::storageKeyOf).orElse(key);
+    }
+
+    public Map<String, String> storageKeys(Collection<String> keys) {
+        Map<String, String> storageKeys = new HashMap<>();
+        for (String key : keys) {
+            storageKeys.put(key, key);
+        }
+        for (FileMetadata metadata : fileMetadataRepository.findByObjectKeyIn(keys)) {
+            storageKeys.put(metadata.getObjectKey(), storageKeyOf(metadata));
+        }
+        return storageKeys;
+    }
+
+    @Transactional
+    public void setThumbnail(String key, String thumbnailKey) {
+        fileMetadataRepository.findByObjectKey(key).ifPresent(metadata -> {
+            metadata.setThumbnailKey(thumbnailKey);
+            fileMetadataRepository.save(metadata);
+        });
+    }
+
+    @Transactional
+    public Optional<FileMetadata> remove(String key) {
+        Optional<FileMetadata> metadata = fileMetadataRepository.findByObjectKey(key);
+        metadata.ifPresent(fileMetadataRepository::delete);
+        return metadata;
+    }
+
+    public FilePage page(String prefix, String contentType, boolean newestFirst, String cursor, int size) {
+        String keyPattern = escapeLike(prefix == null ? "" : prefix) + "%";
+        String typePattern = escapeLike(contentType == null ? "" : contentType) + "%";
+
+        LocalDateTime uploadedAt = newestFirst ? LATEST : EARLIEST;
+        long id = newestFirst ? Long.MAX_VALUE : Long.MIN_VALUE;
+        if (cursor != null && !cursor.isBlank()) {
+            try {
+                String[] parts = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+                uploadedAt = LocalDateTime.parse(parts[0]);
+                id = Long.parseLong(parts[1]);
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+
+        // Fetch one extra row to know whether another page follows
+        PageRequest limit = PageRequest.of(0, size + 1);
+        List<FileMetadata> rows = newestFirst
+                ? fileMetadataRepository.findPageNewestFirst(keyPattern, typePattern, uploadedAt, id, limit)
+                : fileMetadataRepository.findPageOldestFirst(keyPattern, typePattern, uploadedAt, id, limit);
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = rows.subList(0, size);
+            FileMetadata last = rows.get(size - 1);
+            nextCursor = Base64.getUrlEncoder().withoutPadding().encodeToString(
+                    (last.getUploadedAt() + "|" + last.getId()).getBytes(StandardCharsets.UTF_8));
+        }
+
+        List<FileEntry> items = rows.stream()
+                .map(f -> new FileEntry(f.getObjectKey(), f.getSize(), f.getContentType(),
+                        f.getUploadedAt(), f.getThumbnailKey()))
+                .toList();
+        return new FilePage(items, nextCursor);
+    }
+
+    @Transactional
+    public List<FileMetadata> removeAll(Collection<String> keys) {
+        List<FileMetadata> removed = fileMetadataRepository.findByObjectKeyIn(keys);
+        fileMetadataRepository.deleteAllInBatch(removed);
+        return removed;
+    }
+
+    // Thumbnail key per file, for the files that have one
+    public Map<String, String> thumbnailKeys(Collection<String> keys) {
+        Map<String, String> thumbnailKeys = new HashMap<>();
+        for (FileMetadata metadata : fileMetadataRepository.findByObjectKeyIn(keys)) {
+            if (metadata.getThumbnailKey() != null) {
+                thumbnailKeys.put(metadata.getObjectKey(), metadata.getThumbnailKey());
+            }
+        }
+        return thumbnailKeys;
+    }
+
+    public List<String> listKeys() {
+        return fileMetadataRepository.findAllKeys();
+    }
+
+    public List<String> listThumbnailKeys() {
+        return fileMetadataRepository.findAllThumbnailKeys();
+    }
+
+    /**
+     * Compares the index with a listing of the bucket. Listing and stats run outside any transaction;
+     * the corrections are then applied in transactions of {@link #RECONCILE_BATCH_SIZE} rows, so no
+     * connection or row lock is held for the length of a bucket scan.
+     */
+    @Scheduled(initialDelayString = "${files.index.reconcile-initial-delay-ms:60000}",
+            fixedDelayString = "${files.index.reconcile-interval-ms:900000}")
+    public void reconcile() {
+        LocalDateTime startedAt = LocalDateTime.now();
+
+        Map<String, StorageEngine.ObjectInfo> objects = new HashMap<>();
+        Set<String> thumbnails = new HashSet<>();
+        Set<String> blobs = new HashSet<>();
+        // Objects are delivered one at a time, so the plain collections are safe
+        storageEngine.list(null, obj -> {
+            if (obj.key().startsWith(THUMBNAIL_PREFIX)) {
+                thumbnails.add(obj.key());
+            } else if (obj.key().startsWith(BlobService.BLOB_PREFIX)) {
+                blobs.add(obj.key());
+            } else {
+                objects.put(obj.key(), obj);
+            }
+        });
+
+        List<Long> removed = new ArrayList<>();
+        // Detached rows holding the values read from storage, by id
+        Map<Long, FileMetadata> updated = new HashMap<>();
+        for (FileMetadata metadata : fileMetadataRepository.findAll()) {
+            StorageEngine.ObjectInfo obj = objects.remove(metadata.getObjectKey());
+            if (metadata.getContentHash() != null && blobs.contains(storageKeyOf(metadata))) {
+                // Deduplicated content: the file has no object of its own, only its blob
+                continue;
+            }
+            if (obj == null) {
+                // Rows written after the listing started may belong to uploads the listing missed
+                if (metadata.getUploadedAt() == null || metadata.getUploadedAt().isBefore(startedAt)) {
+                    removed.add(metadata.getId());
+                }
+                continue;
+            }
+
+            String thumbnailKey = thumbnailKeyFor(metadata.getObjectKey());
+            String expectedThumbnail = thumbnails.contains(thumbnailKey) ? thumbnailKey : null;
+            boolean changed = metadata.getSize() != obj.size()
+                    || !Objects.equals(obj.eTag(), metadata.getETag())
+                    || !Objects.equals(expectedThumbnail, metadata.getThumbnailKey());
+            if (changed) {
+                metadata.setSize(obj.size());
+                metadata.setETag(obj.eTag());
+                metadata.setThumbnailKey(expectedThumbnail);
+                updated.put(metadata.getId(), metadata);
+            }
+        }
+
+        // Whatever is left exists in storage but not in the index
+        List<FileMetadata> added = new ArrayList<>();
+        for (StorageEngine.ObjectInfo obj : objects.values()) {
+            StorageEngine.ObjectInfo stat = storageEngine.stat(obj.key());
+            if (stat == null) {
+                // Deleted since the listing
+                continue;
+            }
+            String contentType = stat.contentType();
+
+            FileMetadata metadata = new FileMetadata(obj.key(), obj.size(), contentType, null, obj.eTag());
+            metadata.setUploadedAt(LocalDateTime.ofInstant(obj.lastModified(), ZoneId.systemDefault()));
+            String thumbnailKey = thumbnailKeyFor(obj.key());
+            if (thumbnails.contains(thumbnailKey)) {
+                metadata.setThumbnailKey(thumbnailKey);
+            }
+            added.add(metadata);
+        }
+
+        inBatches(removed, fileMetadataRepository::deleteAllByIdInBatch);
+        // Corrections go onto freshly loaded rows, so columns reconciliation doesn't own keep their current values
+        inBatches(new ArrayList<>(updated.keySet()), ids -> {
+            for (FileMetadata metadata : fileMetadataRepository.findAllById(ids)) {
+                FileMetadata stored = updated.get(metadata.getId());
+                metadata.setSize(stored.getSize());
+                metadata.setETag(stored.getETag());
+                metadata.setThumbnailKey(stored.getThumbnailKey());
+            }
+        });
+        inBatches(added, fileMetadataRepository::saveAll);
+
+        log.info("File index reconciled: {} added, {} updated, {} removed", added.size(), updated.size(), removed.size());
+    }
+
+    private <T> void inBatches(List<T> items, Consumer<List<T>> apply) {
+        for (int from = 0; from < items.size(); from += RECONCILE_BATCH_SIZE) {
+            List<T> batch = items.subList(from, Math.min(from + RECONCILE_BATCH_SIZE, items.size()));
+            transactionTemplate.executeWithoutResult(status -> apply.accept(batch));
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    private static String storageKeyOf(FileMetadata metadata) {
+        return metadata.getContentHash() != null
+                ? BlobService.blobKeyFor(metadata.getContentHash())
+                : metadata.getObjectKey();
+    }
+
+    static String thumbnailKeyFor(String key) {
+        return THUMBNAIL_PREFIX + key.substring(key.lastIndexOf("/") + 1);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.s3_File_Hub.service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Where a key is stored in the bucket. With storage.key-layout=flat (the original layout) objects
+ * are stored under their key as is. With hashed, every key is stored below a prefix of hex digits of
+ * its SHA-256, e.g. {@code 3f/1b2c..._photo.jpg} and {@code a0/thumbnails/1b2c..._photo.jpg}, so
+ * uploads, thumbnails and blobs spread evenly over S3's partitions instead of piling onto the bucket
+ * root and thumbnails/. Keys everywhere else (API, index, albums) stay unchanged.
+ */
+@Component
+public class KeyLayout {
+
+    private final boolean hashed;
+    private final int prefixLength;
+    private final boolean legacyFallback;
+
+    public KeyLayout(@Value("${storage.key-layout:flat}") String layout,
+                     @Value("${storage.key-layout.prefix-length:2}") int prefixLength,
+                     @Value("${storage.key-layout.legacy-fallback:true}") boolean legacyFallback) {
+        if (!layout.equals("flat") && !layout.equals("hashed")) {
+            throw new IllegalArgumentException("storage.key-layout must be flat or hashed: " + layout);
+        }
+        if (prefixLength < 1 || prefixLength > 4) {
+            throw new IllegalArgumentException("storage.key-layout.prefix-length must be between 1 and 4");
+        }
+        this.hashed = layout.equals("hashed");
+        this.prefixLength = prefixLength;
+        this.legacyFallback = legacyFallback;
+    }
+
+    public boolean isHashed() {
+        return hashed;
+    }
+
+    /**
+     * Whether keys that haven't been migrated yet are still looked up, and deleted, under their
+     * flat name. Can be turned off once the migration has completed.
+     */
+    public boolean isLegacyFallback() {
+        return hashed && legacyFallback;
+    }
+
+    // Name of the object in the bucket
+    public String storageKey(String key) {
+        return hashed ? prefix(key) + key : key;
+    }
+
+    // Key stored under a hashed name, or null for a name in the flat layout
+    public String keyOf(String storageKey) {
+        int separator = prefixLength;
+        if (storageKey.length() <= separator || storageKey.charAt(separator) != '/') {
+            return null;
+        }
+        String key = storageKey.substring(separator + 1);
+        return storageKey.startsWith(prefix(key)) ? key : null;
+    }
+
+    // Every prefix the hashed layout uses, for listings that have to visit all of them
+    public String[] prefixes() {
+        int count = 1 << (4 * prefixLength);
+        String[] prefixes = new String[count];
+        for (int i = 0; i < count; i++) {
+            prefixes[i] = HexFormat.of().toHexDigits(i).substring(8 - prefixLength) + "/";
+        }
+        return prefixes;
+    }
+
+    private String prefix(String key) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash, 0, (prefixLength + 1) / 2).substring(0, prefixLength) + "/";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+import com.example.s3_File_Hub.model.KeyMigrationCheckpoint;
+import com.example.s3_File_Hub.model.KeyMigrationFailure;
+import com.example.s3_File_Hub.repository.KeyMigrationCheckpointRepository;
+import com.example.s3_File_Hub.repository.KeyMigrationFailureRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Moves objects stored under flat names to their hashed {@link KeyLayout} names while the
+ * application keeps serving them: each object is copied inside the bucket, then the flat one is
+ * deleted. Until an object has moved, {@link PartitionedStorageEngine} still finds it under its old
+ * name. Runs at startup with storage.key-layout.migration.enabled, on one instance only.
+ * <p>
+ * Objects are taken in listing order, in batches copied in parallel. The last key of each finished
+ * batch is saved as checkpoint, so a restart resumes after it, and objects that failed to move are
+ * recorded. Once the bucket has been listed, only those are retried, once per start. The
+ * checkpoint and the failures are also how {@link PartitionedStorageEngine} knows which objects have
+ * moved; after the migration has completed it no longer looks under flat names at all.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.key-layout", havingValue = "hashed")
+@Slf4j
+public class KeyLayoutMigration {
+
+    static final String CHECKPOINT = "hashed-key-layout";
+
+    // The raw engine: the migration works with names in the bucket, not with keys
+    private final S3StorageEngine storageEngine;
+    private final KeyLayout keyLayout;
+    private final KeyMigrationCheckpointRepository checkpointRepository;
+    private final KeyMigrationFailureRepository failureRepository;
+
+    @Value("${storage.key-layout.migration.enabled:false}")
+    private boolean enabled;
+
+    // Copies in flight; CopyObject runs inside S3, so this is bound by request rate rather than bandwidth
+    @Value("${storage.key-layout.migration.parallelism:16}")
+    private int parallelism;
+
+    @Value("${storage.key-layout.migration.batch-size:1000}")
+    private int batchSize;
+
+    private ExecutorService executor;
+    private volatile boolean stopping;
+
+    public KeyLayoutMigration(S3StorageEngine storageEngine, KeyLayout keyLayout,
+                              KeyMigrationCheckpointRepository checkpointRepository,
+                              KeyMigrationFailureRepository failureRepository) {
+        this.storageEngine = storageEngine;
+        this.keyLayout = keyLayout;
+        this.checkpointRepository = checkpointRepository;
+        this.failureRepository = failureRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        executor = Executors.newFixedThreadPool(Math.max(1, parallelism));
+        Thread.ofPlatform().name("key-layout-migration").daemon().start(this::migrate);
+    }
+
+    private void migrate() {
+        KeyMigrationCheckpoint checkpoint = checkpointRepository.findById(CHECKPOINT)
+                .orElseGet(() -> new KeyMigrationCheckpoint(CHECKPOINT));
+        if (checkpoint.isCompleted()) {
+            log.info("Key layout migration already completed: {} objects moved", checkpoint.getMoved());
+            return;
+        }
+
+        try {
+            if (!checkpoint.isListed()) {
+                list(checkpoint);
+            }
+            retryFailed(checkpoint);
+        } catch (RuntimeException e) {
+            // Stopping surfaces here too, possibly wrapped by the listing
+            if (stopping) {
+                log.info("Key layout migration stopped; resumes after {} on the next start", checkpoint.getLastKey());
+            } else {
+                log.error("Key layout migration failed; resumes after {} on the next start", checkpoint.getLastKey(), e);
+            }
+            return;
+        } finally {
+            executor.shutdown();
+        }
+
+        checkpoint.setFailed(failureRepository.count());
+        checkpoint.setCompleted(checkpoint.getFailed() == 0);
+        save(checkpoint);
+        log.info("Key layout migration {}: {} objects moved, {} failed{}",
+                checkpoint.isCompleted() ? "completed" : "pass finished", checkpoint.getMoved(), checkpoint.getFailed(),
+                checkpoint.isCompleted() ? "" : "; failed objects are retried on the next start");
+    }
+
+    private void list(KeyMigrationCheckpoint checkpoint) {
+        String resumeAfter = checkpoint.getLastKey();
+        log.info("Key layout migration {}", resumeAfter == null ? "started" : "resumed after " + resumeAfter);
+
+        List<String> batch = new ArrayList<>();
+        // Objects are delivered one at a time; a full batch is moved before the listing continues.
+        // The listing itself starts after the checkpoint, so a resumed pass doesn't revisit moved objects
+        storageEngine.list(null, resumeAfter, object -> {
+            if (keyLayout.keyOf(object.key()) != null) {
+                return;
+            }
+            batch.add(object.key());
+            if (batch.size() >= batchSize) {
+                moveBatch(batch, checkpoint, true);
+                batch.clear();
+            }
+        });
+        moveBatch(batch, checkpoint, true);
+
+        checkpoint.setListed(true);
+        save(checkpoint);
+    }
+
+    // Names that failed to move, in this run or earlier ones
+    private void retryFailed(KeyMigrationCheckpoint checkpoint) {
+        List<String> failed = failureRepository.findAllNames();
+        if (!failed.isEmpty()) {
+            log.info("Key layout migration: retrying {} objects that failed to move", failed.size());
+        }
+        for (int i = 0; i < failed.size(); i += batchSize) {
+            moveBatch(failed.subList(i, Math.min(i + batchSize, failed.size())), checkpoint, false);
+        }
+    }
+
+    // Listed batches advance the checkpoint; failures are recorded before it moves past them
+    private void moveBatch(List<String> keys, KeyMigrationCheckpoint checkpoint, boolean listed) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        if (stopping) {
+            throw new CancellationException();
+        }
+
+        List<CompletableFuture<Boolean>> moves = keys.stream()
+                .map(key -> CompletableFuture.supplyAsync(() -> move(key), executor))
+                .toList();
+        long moved = 0;
+        for (int i = 0; i < keys.size(); i++) {
+            if (moves.get(i).join()) {
+                moved++;
+                if (!listed) {
+                    failureRepository.deleteById(keys.get(i));
+                }
+            } else {
+                failureRepository.save(new KeyMigrationFailure(keys.get(i)));
+            }
+        }
+
+        checkpoint.setMoved(checkpoint.getMoved() + moved);
+        checkpoint.setFailed(failureRepository.count());
+        if (listed) {
+            checkpoint.setLastKey(keys.get(keys.size() - 1));
+        }
+        save(checkpoint);
+        log.info("Key layout migration: {} objects moved, {} failed, last {}", checkpoint.getMoved(),
+                checkpoint.getFailed(), keys.get(keys.size() - 1));
+    }
+
+    // Returns false when the object is still under its flat name
+    private boolean move(String key) {
+        String target = keyLayout.storageKey(key);
+        try {
+            // Already there when it was written again since the layout changed; that copy is newer
+            if (storageEngine.stat(target) == null) {
+                storageEngine.copy(key, target);
+                if (storageEngine.stat(key) == null) {
+                    // Deleted while it was being copied; don't bring it back
+                    storageEngine.delete(target);
+                    return true;
+                }
+            }
+            storageEngine.delete(key);
+            return true;
+        } catch (StorageException e) {
+            if (e.getStatusCode() == 404) {
+                // Deleted before it could be copied
+                return true;
+            }
+            log.warn("Failed to move {} to {}", key, target, e);
+            return false;
+        } catch (RuntimeException e) {
+            log.warn("Failed to move {} to {}", key, target, e);
+            return false;
+        }
+    }
+
+    private void save(KeyMigrationCheckpoint checkpoint) {
+        checkpoint.setUpdatedAt(LocalDateTime.now());
+        checkpointRepository.save(checkpoint);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // The running batch finishes; its checkpoint is saved before the next one would start
+        stopping = true;
+    }
+}
@@ -0,0 +1,370 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.InvalidKeyException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.web.util.UriUtils;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Objects as plain files on this node's disk, for on-prem deployments and network-free load tests.
+ * A key is stored at {root}/ab/cd/{sha256(key)} (the first two byte pairs of the hash as directories,
+ * so no directory grows past a few thousand entries whatever the keys look like), with its key and
+ * content type in a .meta file next to it. Content is moved with FileChannel.transferFrom/transferTo
+ * instead of through heap buffers. Presigned URLs point at {@code /api/storage}, signed with HMAC.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.engine", havingValue = "local")
+@Slf4j
+public class LocalStorageEngine implements StorageEngine {
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String KEY_PROPERTY = "key";
+    private static final String CONTENT_TYPE_PROPERTY = "contentType";
+
+    private final Path root;
+    private final String publicUrl;
+    private final SecretKeySpec signingKey;
+
+    public LocalStorageEngine(@Value("${storage.local.root:./data/storage}") String root,
+                              @Value("${storage.local.public-url:http://localhost:8080}") String publicUrl,
+                              @Value("${storage.local.signing-secret}") String signingSecret) throws IOException {
+        this.root = Path.of(root).toAbsolutePath().normalize();
+        this.publicUrl = publicUrl.endsWith("/") ? publicUrl.substring(0, publicUrl.length() - 1) : publicUrl;
+        this.signingKey = new SecretKeySpec(signingSecret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+        Files.createDirectories(this.root);
+        log.info("Local storage engine at {}", this.root);
+    }
+
+    @Override
+    public String put(String key, InputStream in, long size, String contentType) throws IOException {
+        Path target = pathOf(key);
+        Files.createDirectories(target.getParent());
+
+        // Written next to the target and moved into place, so readers never see a partial object
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            // Not closed here: the stream belongs to the caller
+            ReadableByteChannel source = Channels.newChannel(in);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                long written = 0;
+                while (written < size) {
+                    long transferred = channel.transferFrom(source, written, size - written);
+                    if (transferred == 0) {
+                        break;
+                    }
+                    written += transferred;
+                }
+                if (written != size || in.read() != -1) {
+                    throw new IOException("Content of " + key + " does not match its declared size " + size);
+                }
+            }
+
+            writeMetadata(metadataPathOf(target), key, contentType);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return eTag(Files.readAttributes(target, BasicFileAttributes.class));
+    }
+
+    @Override
+    public StorageObject get(String key, String range, String ifRange) {
+        Path path = pathOf(key);
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new StorageException(404, "No such object: " + key, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            long size = attributes.size();
+            String eTag = eTag(attributes);
+            Instant lastModified = attributes.lastModifiedTime().toInstant();
+            String contentType = readMetadata(metadataPathOf(path)).getProperty(CONTENT_TYPE_PROPERTY);
+
+            long[] bounds = range != null && ByteRanges.ifRangeMatches(ifRange, eTag, lastModified)
+                    ? ByteRanges.bounds(key, range, size)
+                    : null;
+            if (bounds == null) {
+                return new FileObject(channel, 0, size, contentType, null, eTag, lastModified);
+            }
+            return new FileObject(channel, bounds[0], bounds[1] - bounds[0] + 1, contentType,
+                    ByteRanges.contentRange(bounds, size), eTag, lastModified);
+        } catch (IOException | RuntimeException e) {
+            try {
+                channel.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            if (e instanceof IOException io) {
+                throw new UncheckedIOException(io);
+            }
+            throw (RuntimeException) e;
+        }
+    }
+
+    @Override
+    public ObjectInfo stat(String key) {
+        Path path = pathOf(key);
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            String contentType = readMetadata(metadataPathOf(path)).getProperty(CONTENT_TYPE_PROPERTY);
+            return new ObjectInfo(key, attributes.size(), contentType, eTag(attributes),
+                    attributes.lastModifiedTime().toInstant());
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        Path path = pathOf(key);
+        try {
+            Files.deleteIfExists(path);
+            Files.deleteIfExists(metadataPathOf(path));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteAll(Collection<String> keys) {
+        Map<String, String> errors = new HashMap<>();
+        for (String key : keys) {
+            try {
+                delete(key);
+            } catch (UncheckedIOException e) {
+                errors.put(key, e.getCause().getMessage());
+            }
+        }
+        return errors;
+    }
+
+    @Override
+    public void list(String prefix, Consumer<ObjectInfo> consumer) {
+        try (Stream<Path> files = Files.walk(root)) {
+            files.filter(path -> path.getFileName().toString().endsWith(META_SUFFIX)).forEach(metadataPath -> {
+                try {
+                    String key = readMetadata(metadataPath).getProperty(KEY_PROPERTY);
+                    if (key == null || (prefix != null && !key.startsWith(prefix))) {
+                        return;
+                    }
+                    String fileName = metadataPath.getFileName().toString();
+                    Path path = metadataPath.resolveSibling(fileName.substring(0, fileName.length() - META_SUFFIX.length()));
+                    BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+                    consumer.accept(new ObjectInfo(key, attributes.size(), null, eTag(attributes),
+                            attributes.lastModifiedTime().toInstant()));
+                } catch (NoSuchFileException e) {
+                    // Deleted, or still being written, while the listing ran
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String presignGet(String key, Duration duration) {
+        return signedUrl("GET", key, null, duration);
+    }
+
+    @Override
+    public String presignPut(String key, String contentType, Duration duration) {
+        return signedUrl("PUT", key, contentType, duration);
+    }
+
+    /** Checks a URL handed out by {@link #presignGet} or {@link #presignPut}. */
+    public boolean verify(String method, String key, String contentType, long expires, String signature) {
+        if (signature == null || Instant.now().getEpochSecond() > expires) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                sign(method, key, contentType, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private String signedUrl(String method, String key, String contentType, Duration duration) {
+        long expires = Instant.now().plus(duration).getEpochSecond();
+        return publicUrl + "/api/storage/" + UriUtils.encodePath(key, StandardCharsets.UTF_8)
+                + "?expires=" + expires
+                + "&signature=" + sign(method, key, contentType, expires);
+    }
+
+    private String sign(String method, String key, String contentType, long expires) {
+        String payload = method + "\n" + key + "\n" + (contentType == null ? "" : contentType) + "\n" + expires;
+        try {
+            // Mac instances aren't thread-safe, and creating one is cheap next to the request itself
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(signingKey);
+            return Base64.getUrlEncoder().withoutPadding()
+                    .encodeToString(mac.doFinal(payload.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Path pathOf(String key) {
+        try {
+            String hash = HexFormat.of().formatHex(
+                    MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+            return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Path metadataPathOf(Path path) {
+        return path.resolveSibling(path.getFileName() + META_SUFFIX);
+    }
+
+    private static void writeMetadata(Path metadataPath, String key, String contentType) throws IOException {
+        Properties metadata = new Properties();
+        metadata.setProperty(KEY_PROPERTY, key);
+        if (contentType != null) {
+            metadata.setProperty(CONTENT_TYPE_PROPERTY, contentType);
+        }
+
+        Path temp = Files.createTempFile(metadataPath.getParent(), metadataPath.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                metadata.store(writer, null);
+            }
+            Files.move(temp, metadataPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+    }
+
+    private static Properties readMetadata(Path metadataPath) throws IOException {
+        Properties metadata = new Properties();
+        try (Reader reader = Files.newBufferedReader(metadataPath, StandardCharsets.UTF_8)) {
+            metadata.load(reader);
+        }
+        return metadata;
+    }
+
+    // Changes whenever the file is rewritten; keys are never overwritten with different content anyway
+    private static String eTag(BasicFileAttributes attributes) {
+        return "\"" + Long.toHexString(attributes.size()) + "-"
+                + Long.toHexString(attributes.lastModifiedTime().toMillis()) + "\"";
+    }
+
+    /**
+     * Reads one range of the file with positional reads, so the channel's own position is never
+     * shared state. transferTo hands the range to FileChannel.transferTo, which lets the kernel
+     * copy it (sendfile) when the target is a socket or file channel.
+     */
+    private static final class FileObject extends StorageObject {
+
+        private final FileChannel channel;
+        private final long end;
+        private long position;
+
+        FileObject(FileChannel channel, long start, long length, String contentType, String contentRange,
+                   String eTag, Instant lastModified) {
+            super(Channels.newInputStream(channel), contentType, length, contentRange, eTag, lastModified);
+            this.channel = channel;
+            this.position = start;
+            this.end = start + length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= end) {
+                return -1;
+            }
+            int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+            if (read > 0) {
+                position += read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            long skipped = Math.max(0, Math.min(n, end - position));
+            position += skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, end - position);
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            // Not closed: closing the channel would close the caller's stream
+            WritableByteChannel target = Channels.newChannel(out);
+            long start = position;
+            while (position < end) {
+                long transferred = channel.transferTo(position, end - position, target);
+                if (transferred == 0) {
+                    // The file was truncated underneath us
+                    break;
+                }
+                position += transferred;
+            }
+            return position - start;
+        }
+    }
+}
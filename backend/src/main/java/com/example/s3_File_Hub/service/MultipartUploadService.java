@@ -0,0 +1,244 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.s3_File_Hub.dto.MultipartUploadInit;
+import com.example.s3_File_Hub.dto.PresignedPart;
+import com.example.s3_File_Hub.dto.UploadedPart;
+import com.example.s3_File_Hub.exceptions.StorageException;
+import com.example.s3_File_Hub.model.MultipartUpload;
+import com.example.s3_File_Hub.repository.MultipartUploadRepository;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.UploadPartPresignRequest;
+
+/**
+ * Multipart uploads that go straight from the browser to S3. The backend creates the upload,
+ * presigns part URLs in batches and completes or aborts it; the bytes never pass through here.
+ * The uploader is recorded with the upload; other users get 403 for its parts, completion and abort.
+ * Uploads that are never completed are only cleaned up by a bucket lifecycle rule
+ * (AbortIncompleteMultipartUpload). Only available with the S3 storage engine.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.engine", havingValue = "s3", matchIfMissing = true)
+@Slf4j
+public class MultipartUploadService {
+
+    static final String OWNER_METADATA = "owner";
+
+    private static final int MAX_PARTS = 10_000;
+    private static final long MIN_PART_SIZE = 5L * 1024 * 1024;
+    private static final long MAX_OBJECT_SIZE = 5L * 1024 * 1024 * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final S3Presigner presigner;
+    private final FileIndexService fileIndexService;
+    private final QuotaService quotaService;
+    private final ThumbnailService thumbnailService;
+    private final KeyLayout keyLayout;
+    private final MultipartUploadRepository uploadRepository;
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    @Value("${aws.s3.multipart.part-size-mb:8}")
+    private int partSizeMB;
+
+    // Long enough for a slow part to finish; the client asks for fresh URLs when resuming
+    @Value("${aws.s3.multipart.presign-minutes:60}")
+    private long presignMinutes;
+
+    // Should match the bucket's AbortIncompleteMultipartUpload rule
+    @Value("${aws.s3.multipart.abandoned-after-days:7}")
+    private long abandonedAfterDays;
+
+    public MultipartUploadService(S3Client s3Client, S3Presigner presigner, FileIndexService fileIndexService,
+                                  QuotaService quotaService, ThumbnailService thumbnailService,
+                                  KeyLayout keyLayout, MultipartUploadRepository uploadRepository) {
+        this.s3Client = s3Client;
+        this.presigner = presigner;
+        this.fileIndexService = fileIndexService;
+        this.quotaService = quotaService;
+        this.thumbnailService = thumbnailService;
+        this.keyLayout = keyLayout;
+        this.uploadRepository = uploadRepository;
+    }
+
+    public MultipartUploadInit create(String filename, String contentType, long size, String owner) {
+        if (size <= 0 || size > MAX_OBJECT_SIZE) {
+            throw new IllegalArgumentException("size must be between 1 byte and 5 TB");
+        }
+        quotaService.checkAvailable(owner, size);
+
+        // Grow the part size when the configured one would need more than 10,000 parts
+        long partSize = Math.max(Math.max(partSizeMB * 1024L * 1024L, MIN_PART_SIZE),
+                (size + MAX_PARTS - 1) / MAX_PARTS);
+        int partCount = (int) ((size + partSize - 1) / partSize);
+
+        String key = UUID.randomUUID() + "_" + filename;
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(keyLayout.storageKey(key))
+                .contentType(contentType)
+                .metadata(Map.of(OWNER_METADATA, owner))
+                .build()).uploadId();
+        uploadRepository.save(new MultipartUpload(uploadId, key, owner));
+
+        return new MultipartUploadInit(key, uploadId, partSize, partCount);
+    }
+
+    public List<PresignedPart> presignParts(String key, String uploadId, Collection<Integer> partNumbers,
+                                           String owner) {
+        requireOwner(key, uploadId, owner);
+        for (int partNumber : partNumbers) {
+            if (partNumber < 1 || partNumber > MAX_PARTS) {
+                throw new IllegalArgumentException("Part numbers must be between 1 and " + MAX_PARTS);
+            }
+        }
+
+        Duration duration = Duration.ofMinutes(presignMinutes);
+        return partNumbers.stream()
+                .map(partNumber -> new PresignedPart(partNumber, presigner.presignUploadPart(
+                        UploadPartPresignRequest.builder()
+                                .signatureDuration(duration)
+                                .uploadPartRequest(UploadPartRequest.builder()
+                                        .bucket(bucketName)
+                                        .key(keyLayout.storageKey(key))
+                                        .uploadId(uploadId)
+                                        .partNumber(partNumber)
+                                        .build())
+                                .build()).url().toString()))
+                .toList();
+    }
+
+    // Parts S3 already has, so an interrupted upload can resume with the missing ones
+    public List<UploadedPart> listParts(String key, String uploadId, String owner) {
+        requireOwner(key, uploadId, owner);
+        return listUploadedParts(key, uploadId);
+    }
+
+    private List<UploadedPart> listUploadedParts(String key, String uploadId) {
+        return s3Client.listPartsPaginator(ListPartsRequest.builder()
+                        .bucket(bucketName)
+                        .key(keyLayout.storageKey(key))
+                        .uploadId(uploadId)
+                        .build())
+                .parts().stream()
+                .map(part -> new UploadedPart(part.partNumber(), part.eTag(), part.size()))
+                .toList();
+    }
+
+    /**
+     * Completes the upload from the client's part list, or from S3's own list when the client
+     * sends none (browsers can only read part ETags when the bucket's CORS exposes them).
+     */
+    public String complete(String key, String uploadId, List<UploadedPart> parts, String owner) {
+        if (!uploadRepository.existsById(uploadId)) {
+            // A retried complete whose first attempt went through
+            boolean completed = fileIndexService.find(key).map(m -> owner.equals(m.getOwner())).orElse(false);
+            if (completed) {
+                return key;
+            }
+        }
+        requireOwner(key, uploadId, owner);
+
+        List<UploadedPart> completedParts = parts == null || parts.isEmpty() ? listUploadedParts(key, uploadId) : parts;
+        if (completedParts.isEmpty()) {
+            throw new IllegalArgumentException("No parts have been uploaded");
+        }
+
+        String eTag = s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(keyLayout.storageKey(key))
+                .uploadId(uploadId)
+                .multipartUpload(CompletedMultipartUpload.builder()
+                        .parts(completedParts.stream()
+                                .sorted(Comparator.comparingInt(UploadedPart::getPartNumber))
+                                .map(part -> CompletedPart.builder()
+                                        .partNumber(part.getPartNumber())
+                                        .eTag(part.getEtag())
+                                        .build())
+                                .toList())
+                        .build())
+                .build()).eTag();
+
+        HeadObjectResponse object = s3Client.headObject(HeadObjectRequest.builder()
+                .bucket(bucketName)
+                .key(keyLayout.storageKey(key))
+                .build());
+
+        // Concurrent or repeated completes all succeed at S3; only one of them charges the quota and indexes the file
+        boolean indexed = fileIndexService.find(key).map(m -> eTag.equals(m.getETag())).orElse(false);
+        if (uploadRepository.claim(uploadId) == 0 || indexed) {
+            return key;
+        }
+
+        // The declared size was only checked at create; the real one is reserved now
+        try {
+            quotaService.reserve(owner, object.contentLength());
+        } catch (RuntimeException e) {
+            deleteQuietly(key);
+            throw e;
+        }
+
+        fileIndexService.record(key, object.contentLength(), object.contentType(), owner, eTag);
+        thumbnailService.submit(key, object.contentType());
+        return key;
+    }
+
+    public void abort(String key, String uploadId, String owner) {
+        requireOwner(key, uploadId, owner);
+        s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(keyLayout.storageKey(key))
+                .uploadId(uploadId)
+                .build());
+        uploadRepository.deleteById(uploadId);
+    }
+
+    // Uploads are only visible to the user who created them
+    private void requireOwner(String key, String uploadId, String owner) {
+        MultipartUpload upload = uploadRepository.findById(uploadId)
+                .filter(u -> u.getObjectKey().equals(key))
+                .orElseThrow(() -> new StorageException(HttpStatus.NOT_FOUND.value(), "No such upload: " + uploadId));
+        if (!upload.getOwner().equals(owner)) {
+            throw new StorageException(HttpStatus.FORBIDDEN.value(), "Upload belongs to another user: " + uploadId);
+        }
+    }
+
+    // S3 aborts abandoned uploads through the bucket's lifecycle rule; their records go after the same time
+    @Scheduled(initialDelayString = "${aws.s3.multipart.cleanup-initial-delay-ms:300000}",
+            fixedDelayString = "${aws.s3.multipart.cleanup-interval-ms:3600000}")
+    public void deleteAbandoned() {
+        int deleted = uploadRepository.deleteCreatedBefore(LocalDateTime.now().minusDays(abandonedAfterDays));
+        if (deleted > 0) {
+            log.info("Deleted {} abandoned multipart upload records", deleted);
+        }
+    }
+
+    private void deleteQuietly(String key) {
+        try {
+            s3Client.deleteObject(DeleteObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(keyLayout.storageKey(key))
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to delete over-quota upload {}", key, e);
+        }
+    }
+}
@@ -0,0 +1,648 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Read-through cache in front of the storage engine for downloads. Objects up to
+ * object-cache.heap.max-object-kb (thumbnails, small images) are kept on the heap; larger ones up to
+ * object-cache.disk.max-object-mb as files on local disk, read back memory-mapped. Both tiers are
+ * bounded by bytes and evict with Caffeine's W-TinyLFU, so a one-off album archive doesn't flush
+ * the popular files.
+ * <p>
+ * A miss is streamed from storage as usual; on a full read the bytes are copied into the cache as
+ * the caller consumes them, and the entry is added once all of them have gone through. A ranged read
+ * of an uncached object (video seeking) just goes to storage. Only one read per key fills the cache
+ * at a time: concurrent misses wait for it and are served from the entry it adds, and only read
+ * from storage themselves when that fill fails or takes longer than object-cache.fill-wait-seconds.
+ * Entries are checked against the object's ETag once they are older than
+ * object-cache.revalidate-after-seconds, and callers invalidate keys they delete or overwrite, which
+ * also drops a fill in progress. Requests are counted as object.cache.requests
+ * (result=hit|miss, tier=heap|disk|none), from which the hit ratio follows.
+ */
+@Component
+@Slf4j
+public class ObjectCache {
+
+    private static final String FILE_SUFFIX = ".cache";
+    // Weight of the marker remembering that an object is too large to cache
+    private static final int MARKER_WEIGHT = 1024;
+
+    private final StorageEngine storageEngine;
+    private final boolean enabled;
+    private final long heapMaxObjectBytes;
+    private final long diskMaxObjectBytes;
+    private final long revalidateAfterNanos;
+    private final long fillWaitNanos;
+    private final Path directory;
+
+    private final Cache<String, CachedObject> heap;
+    private final Cache<String, CachedObject> disk;
+    // Misses currently filling the cache, one per key; completes with the entry added, or null
+    private final Map<String, CompletableFuture<CachedObject>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter heapHits;
+    private final Counter diskHits;
+    private final Counter misses;
+
+    public ObjectCache(StorageEngine storageEngine,
+                       MeterRegistry meterRegistry,
+                       @Value("${object-cache.enabled:true}") boolean enabled,
+                       @Value("${object-cache.heap.max-mb:64}") long heapMaxMB,
+                       @Value("${object-cache.heap.max-object-kb:256}") long heapMaxObjectKB,
+                       @Value("${object-cache.disk.directory:${java.io.tmpdir}/s3-file-hub-cache}") String directory,
+                       @Value("${object-cache.disk.max-mb:1024}") long diskMaxMB,
+                       @Value("${object-cache.disk.max-object-mb:64}") long diskMaxObjectMB,
+                       @Value("${object-cache.revalidate-after-seconds:300}") long revalidateAfterSeconds,
+                       @Value("${object-cache.fill-wait-seconds:10}") long fillWaitSeconds)
+            throws IOException {
+        this.storageEngine = storageEngine;
+        // Files on local disk already are what the disk tier would make of them
+        this.enabled = enabled && !(storageEngine instanceof LocalStorageEngine);
+        this.heapMaxObjectBytes = heapMaxObjectKB * 1024;
+        // Weights are ints, and a single mapping can't exceed 2 GB anyway
+        this.diskMaxObjectBytes = Math.min(diskMaxObjectMB * 1024 * 1024, Integer.MAX_VALUE);
+        this.revalidateAfterNanos = Duration.ofSeconds(revalidateAfterSeconds).toNanos();
+        this.fillWaitNanos = Duration.ofSeconds(fillWaitSeconds).toNanos();
+        this.directory = Path.of(directory).toAbsolutePath().normalize();
+
+        Counter heapEvictions = evictionCounter(meterRegistry, "heap");
+        Counter diskEvictions = evictionCounter(meterRegistry, "disk");
+        this.heap = Caffeine.newBuilder()
+                .maximumWeight(heapMaxMB * 1024 * 1024)
+                .weigher((String key, CachedObject cached) ->
+                        cached.content != null ? cached.content.length : MARKER_WEIGHT)
+                .removalListener((String key, CachedObject cached, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        heapEvictions.increment();
+                    }
+                })
+                .build();
+        this.disk = Caffeine.newBuilder()
+                .maximumWeight(diskMaxMB * 1024 * 1024)
+                .weigher((String key, CachedObject cached) -> (int) cached.size)
+                .removalListener((String key, CachedObject cached, RemovalCause cause) -> {
+                    if (cause.wasEvicted()) {
+                        diskEvictions.increment();
+                    }
+                    deleteQuietly(cached.path);
+                })
+                .build();
+
+        this.heapHits = requestCounter(meterRegistry, "hit", "heap");
+        this.diskHits = requestCounter(meterRegistry, "hit", "disk");
+        this.misses = requestCounter(meterRegistry, "miss", "none");
+        meterRegistry.gauge("object.cache.size", Tags.of("tier", "heap"), heap,
+                c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+        meterRegistry.gauge("object.cache.size", Tags.of("tier", "disk"), disk,
+                c -> c.policy().eviction().map(e -> e.weightedSize().orElse(0)).orElse(0L));
+
+        if (this.enabled) {
+            // Files left by a previous run aren't in the index and would never be evicted
+            Files.createDirectories(this.directory);
+            try (Stream<Path> files = Files.list(this.directory)) {
+                files.filter(path -> path.getFileName().toString().endsWith(FILE_SUFFIX))
+                        .forEach(ObjectCache::deleteQuietly);
+            }
+            log.info("Object cache: {} MB heap, {} MB disk at {}", heapMaxMB, diskMaxMB, this.directory);
+        }
+    }
+
+    /**
+     * Opens the object like {@link StorageEngine#get}, from the cache when it holds the object.
+     * The caller must close the returned stream.
+     */
+    public StorageObject open(String key, String range, String ifRange) {
+        if (!enabled) {
+            return storageEngine.get(key, range, ifRange);
+        }
+
+        CachedObject cached = lookup(key);
+        StorageObject hit = hit(key, cached, range, ifRange);
+        if (hit != null) {
+            return hit;
+        }
+        if (range != null || (cached != null && cached.isMarker())) {
+            // Ranged read of an uncached object, or an object too large to cache
+            return storageEngine.get(key, range, ifRange);
+        }
+
+        CompletableFuture<CachedObject> filled = new CompletableFuture<>();
+        CompletableFuture<CachedObject> pending = inFlight.putIfAbsent(key, filled);
+        if (pending != null) {
+            StorageObject object = serveFilled(key, pending, awaitFill(pending));
+            return object != null ? object : storageEngine.get(key, null, null);
+        }
+        StorageObject object;
+        try {
+            object = storageEngine.get(key, null, null);
+        } catch (RuntimeException e) {
+            abandon(key, filled);
+            throw e;
+        }
+        return fill(key, object, filled);
+    }
+
+    /**
+     * Same as {@link #open}, reading with {@link StorageEngine#statAsync} and
+     * {@link StorageEngine#getAsync}, so neither a revalidation nor a miss holds the calling thread
+     * when the engine reads asynchronously; nor does waiting for another read's fill.
+     */
+    public CompletableFuture<StorageObject> openAsync(String key, String range, String ifRange) {
+        if (!enabled) {
+            return storageEngine.getAsync(key, range, ifRange);
+        }
+
+        return lookupAsync(key).thenCompose(cached -> {
+            StorageObject hit = hit(key, cached, range, ifRange);
+            if (hit != null) {
+                return CompletableFuture.completedFuture(hit);
+            }
+            if (range != null || (cached != null && cached.isMarker())) {
+                return storageEngine.getAsync(key, range, ifRange);
+            }
+
+            CompletableFuture<CachedObject> filled = new CompletableFuture<>();
+            CompletableFuture<CachedObject> pending = inFlight.putIfAbsent(key, filled);
+            if (pending != null) {
+                // A copy, so the timeout doesn't complete the fill's own future for everyone else
+                return pending.copy()
+                        .completeOnTimeout(null, fillWaitNanos, TimeUnit.NANOSECONDS)
+                        .thenCompose(entry -> {
+                            StorageObject object = serveFilled(key, pending, entry);
+                            return object != null
+                                    ? CompletableFuture.completedFuture(object)
+                                    : storageEngine.getAsync(key, null, null);
+                        });
+            }
+            return storageEngine.getAsync(key, null, null)
+                    .whenComplete((object, error) -> {
+                        if (error != null) {
+                            abandon(key, filled);
+                        }
+                    })
+                    .thenApply(object -> fill(key, object, filled));
+        });
+    }
+
+    /**
+     * Like {@link StorageEngine#stat}, answered from the cache when it holds the object, so a
+     * conditional request for a cached file doesn't reach storage at all.
+     */
+    public StorageEngine.ObjectInfo stat(String key) {
+        CachedObject cached = enabled ? lookup(key) : null;
+        if (cached == null || cached.isMarker()) {
+            return storageEngine.stat(key);
+        }
+        return new StorageEngine.ObjectInfo(key, cached.size, cached.contentType, cached.eTag, cached.lastModified);
+    }
+
+    public void invalidate(String key) {
+        // A fill in progress may be copying the old content; it is discarded when it finishes, and
+        // requests waiting for it read the new content from storage right away
+        CompletableFuture<CachedObject> filling = inFlight.remove(key);
+        if (filling != null) {
+            filling.complete(null);
+        }
+        heap.invalidate(key);
+        disk.invalidate(key);
+    }
+
+    // Serves the cached entry, counting the request; null on a miss
+    private StorageObject hit(String key, CachedObject cached, String range, String ifRange) {
+        if (cached != null && !cached.isMarker()) {
+            StorageObject object = serve(key, cached, range, ifRange);
+            if (object != null) {
+                (cached.content != null ? heapHits : diskHits).increment();
+                return object;
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    // The cached entry, after checking a stale one against storage; null when there is none
+    private CachedObject lookup(String key) {
+        CachedObject cached = entry(key);
+        if (!startRevalidation(cached)) {
+            return cached;
+        }
+        StorageEngine.ObjectInfo current;
+        try {
+            current = storageEngine.stat(key);
+        } catch (RuntimeException e) {
+            return revalidated(key, cached, null, e);
+        }
+        return revalidated(key, cached, current, null);
+    }
+
+    private CompletableFuture<CachedObject> lookupAsync(String key) {
+        CachedObject cached = entry(key);
+        if (!startRevalidation(cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return storageEngine.statAsync(key).handle((current, error) -> revalidated(key, cached, current, error));
+    }
+
+    private CachedObject entry(String key) {
+        CachedObject cached = heap.getIfPresent(key);
+        if (cached == null) {
+            cached = disk.getIfPresent(key);
+        }
+        if (cached != null && cached.isMarker() && isStale(cached)) {
+            // The object may have been replaced by a smaller one; find out on the next full read
+            remove(key, cached);
+            return null;
+        }
+        return cached;
+    }
+
+    // True when this request has to check the entry; another one already checking serves it meanwhile
+    private boolean startRevalidation(CachedObject cached) {
+        return cached != null && isStale(cached) && cached.revalidating.compareAndSet(false, true);
+    }
+
+    private CachedObject revalidated(String key, CachedObject cached, StorageEngine.ObjectInfo current,
+                                     Throwable error) {
+        try {
+            if (error != null) {
+                // Storage unreachable: the cached copy is the best answer there is
+                log.warn("Failed to revalidate cached object {}", key, error);
+                return cached;
+            }
+            if (current != null && Objects.equals(current.eTag(), cached.eTag)) {
+                cached.validatedAt = System.nanoTime();
+                return cached;
+            }
+            remove(key, cached);
+            return null;
+        } finally {
+            cached.revalidating.set(false);
+        }
+    }
+
+    private boolean isStale(CachedObject cached) {
+        return System.nanoTime() - cached.validatedAt >= revalidateAfterNanos;
+    }
+
+    // Wraps a full read so that it fills the cache; filled completes when the read is over
+    private StorageObject fill(String key, StorageObject object, CompletableFuture<CachedObject> filled) {
+        long size = object.getContentLength();
+        if (size < 0 || size > diskMaxObjectBytes) {
+            // Unknown length or too large to cache: remember not to try again
+            heap.put(key, new CachedObject(null, null, object));
+            abandon(key, filled);
+            return object;
+        }
+
+        FillingObject filling = new FillingObject(key, object, filled);
+        try {
+            filling.start();
+        } catch (IOException e) {
+            abandon(key, filled);
+            log.warn("Failed to start caching {}", key, e);
+            return object;
+        }
+        return filling;
+    }
+
+    // Lets the requests waiting for a fill that won't add an entry read from storage themselves
+    private void abandon(String key, CompletableFuture<CachedObject> filled) {
+        inFlight.remove(key, filled);
+        filled.complete(null);
+    }
+
+    // The entry another read is filling, once added; null when that fill failed or takes too long
+    private CachedObject awaitFill(CompletableFuture<CachedObject> pending) {
+        try {
+            return pending.get(fillWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    // Null when there is nothing to serve; a fill still in flight after the wait may never finish
+    // (a stream left open), so later misses stop waiting for it
+    private StorageObject serveFilled(String key, CompletableFuture<CachedObject> pending, CachedObject filled) {
+        if (filled == null) {
+            inFlight.remove(key, pending);
+            return null;
+        }
+        return serve(key, filled, null, null);
+    }
+
+    // Null when a disk entry's file has been evicted in the meantime
+    private StorageObject serve(String key, CachedObject cached, String range, String ifRange) {
+        long[] bounds = range != null && ByteRanges.ifRangeMatches(ifRange, cached.eTag, cached.lastModified)
+                ? ByteRanges.bounds(key, range, cached.size)
+                : null;
+        long start = bounds == null ? 0 : bounds[0];
+        long length = bounds == null ? cached.size : bounds[1] - bounds[0] + 1;
+
+        ByteBuffer content;
+        if (cached.content != null) {
+            content = ByteBuffer.wrap(cached.content, (int) start, (int) length);
+        } else {
+            // The mapping stays valid after the channel is closed, and after eviction deletes the file
+            try (FileChannel channel = FileChannel.open(cached.path, StandardOpenOption.READ)) {
+                content = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            } catch (NoSuchFileException e) {
+                remove(key, cached);
+                return null;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return new StorageObject(new ByteBufferInputStream(content), cached.contentType, length,
+                bounds == null ? null : ByteRanges.contentRange(bounds, cached.size), cached.eTag,
+                cached.lastModified);
+    }
+
+    private void remove(String key, CachedObject cached) {
+        heap.asMap().remove(key, cached);
+        disk.asMap().remove(key, cached);
+    }
+
+    private static Counter requestCounter(MeterRegistry meterRegistry, String result, String tier) {
+        return Counter.builder("object.cache.requests")
+                .tag("result", result)
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static Counter evictionCounter(MeterRegistry meterRegistry, String tier) {
+        return Counter.builder("object.cache.evictions")
+                .tag("tier", tier)
+                .register(meterRegistry);
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Failed to delete cache file {}", path, e);
+        }
+    }
+
+    /**
+     * Content (heap tier) or file (disk tier) plus the headers to serve it with. Neither is set on
+     * the marker for an object too large to cache.
+     */
+    private static final class CachedObject {
+
+        final byte[] content;
+        final Path path;
+        final long size;
+        final String contentType;
+        final String eTag;
+        final Instant lastModified;
+        final AtomicBoolean revalidating = new AtomicBoolean();
+        volatile long validatedAt = System.nanoTime();
+
+        CachedObject(byte[] content, Path path, StorageObject object) {
+            this.content = content;
+            this.path = path;
+            this.size = object.getContentLength();
+            this.contentType = object.getContentType();
+            this.eTag = object.getETag();
+            this.lastModified = object.getLastModified();
+        }
+
+        boolean isMarker() {
+            return content == null && path == null;
+        }
+    }
+
+    /**
+     * A full read from storage that copies what the caller reads into a heap buffer or a cache
+     * file. The entry is added when the stream is closed after every byte went through; a read that
+     * is aborted, skips or fails leaves the cache as it was.
+     */
+    private final class FillingObject extends StorageObject {
+
+        private final String key;
+        private final StorageObject source;
+        private final CompletableFuture<CachedObject> filled;
+        private byte[] content;
+        private Path path;
+        private FileChannel channel;
+        private long position;
+        private boolean abandoned;
+        private boolean finished;
+
+        FillingObject(String key, StorageObject source, CompletableFuture<CachedObject> filled) {
+            super(source, source.getContentType(), source.getContentLength(), null, source.getETag(),
+                    source.getLastModified());
+            this.key = key;
+            this.source = source;
+            this.filled = filled;
+        }
+
+        void start() throws IOException {
+            long size = source.getContentLength();
+            if (size <= heapMaxObjectBytes) {
+                content = new byte[(int) size];
+                return;
+            }
+            path = Files.createTempFile(directory, "object-", FILE_SUFFIX);
+            try {
+                channel = FileChannel.open(path, StandardOpenOption.WRITE);
+            } catch (IOException e) {
+                deleteQuietly(path);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                copy(new byte[] {(byte) b}, 0, 1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                copy(b, off, read);
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // Skipped bytes never reach the copy
+            abandoned = true;
+            return super.skip(n);
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                finish();
+            }
+        }
+
+        @Override
+        public void abort() {
+            abandoned = true;
+            try {
+                source.abort();
+            } finally {
+                finish();
+            }
+        }
+
+        // A failing cache write gives up on the copy; the caller's read carries on
+        private void copy(byte[] b, int off, int len) {
+            if (abandoned) {
+                return;
+            }
+            if (position + len > source.getContentLength()) {
+                abandoned = true;
+                return;
+            }
+            if (content != null) {
+                System.arraycopy(b, off, content, (int) position, len);
+            } else {
+                try {
+                    ByteBuffer buffer = ByteBuffer.wrap(b, off, len);
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                } catch (IOException e) {
+                    log.warn("Failed to write cache file for {}", key, e);
+                    abandoned = true;
+                    return;
+                }
+            }
+            position += len;
+        }
+
+        private void finish() {
+            if (finished) {
+                return;
+            }
+            finished = true;
+
+            boolean complete = !abandoned && position == source.getContentLength();
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.warn("Failed to write cache file for {}", key, e);
+                    complete = false;
+                }
+            }
+            if (!complete) {
+                deleteQuietly(path);
+                abandon(key, filled);
+                return;
+            }
+
+            CachedObject cached = new CachedObject(content, path, source);
+            (content != null ? heap : disk).put(key, cached);
+            // Not in flight anymore when the key was invalidated meanwhile; the copy may be outdated
+            if (inFlight.remove(key, filled)) {
+                filled.complete(cached);
+            } else {
+                remove(key, cached);
+                filled.complete(null);
+            }
+        }
+    }
+
+    private static final class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int read = Math.min(len, buffer.remaining());
+            buffer.get(b, off, read);
+            return read;
+        }
+
+        @Override
+        public long skip(long n) {
+            int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+
+        @Override
+        public long transferTo(OutputStream out) throws IOException {
+            // Not closed: closing the channel would close the caller's stream
+            WritableByteChannel target = Channels.newChannel(out);
+            long transferred = buffer.remaining();
+            while (buffer.hasRemaining()) {
+                target.write(buffer);
+            }
+            return transferred;
+        }
+    }
+}
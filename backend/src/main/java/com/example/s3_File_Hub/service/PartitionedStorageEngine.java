@@ -0,0 +1,278 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+import com.example.s3_File_Hub.model.KeyMigrationCheckpoint;
+import com.example.s3_File_Hub.repository.KeyMigrationCheckpointRepository;
+import com.example.s3_File_Hub.repository.KeyMigrationFailureRepository;
+
+/**
+ * The S3 engine with storage.key-layout=hashed: callers keep using plain keys, which are stored
+ * under their {@link KeyLayout} name. New objects are always written there. While legacy fallback
+ * is on, objects not yet moved by {@link KeyLayoutMigration} are still read from, listed and deleted
+ * under their flat name, at the cost of a second request for each of them.
+ * <p>
+ * Which objects have moved follows from the migration's checkpoint and its recorded failures,
+ * re-read every storage.key-layout.progress-refresh-ms: names it has passed are only looked up
+ * under their hashed name, and once it has completed no request goes to a flat name at all.
+ */
+@Service
+@Primary
+@ConditionalOnProperty(name = "storage.key-layout", havingValue = "hashed")
+public class PartitionedStorageEngine implements StorageEngine {
+
+    private final S3StorageEngine delegate;
+    private final KeyLayout keyLayout;
+    private final KeyMigrationCheckpointRepository checkpointRepository;
+    private final KeyMigrationFailureRepository failureRepository;
+    private final int maxListedPartitions;
+
+    // Nothing is known to have moved until the checkpoint has been read
+    private volatile MigrationProgress progress = new MigrationProgress(false, false, null, Set.of());
+
+    public PartitionedStorageEngine(S3StorageEngine delegate, KeyLayout keyLayout,
+                                    KeyMigrationCheckpointRepository checkpointRepository,
+                                    KeyMigrationFailureRepository failureRepository,
+                                    @Value("${storage.key-layout.max-listed-partitions:256}") int maxListedPartitions) {
+        this.delegate = delegate;
+        this.keyLayout = keyLayout;
+        this.checkpointRepository = checkpointRepository;
+        this.failureRepository = failureRepository;
+        this.maxListedPartitions = maxListedPartitions;
+    }
+
+    /**
+     * Reads how far the migration has got. Progress seen late only means more lookups under flat
+     * names: objects never move back, and a failure is recorded before the checkpoint passes it.
+     */
+    @Scheduled(fixedDelayString = "${storage.key-layout.progress-refresh-ms:30000}")
+    public void refreshProgress() {
+        if (!keyLayout.isLegacyFallback() || progress.completed()) {
+            return;
+        }
+        KeyMigrationCheckpoint checkpoint = checkpointRepository.findById(KeyLayoutMigration.CHECKPOINT).orElse(null);
+        if (checkpoint == null) {
+            return;
+        }
+        // Read after the checkpoint, so it holds every failure up to the checkpoint's last key
+        Set<String> failed = checkpoint.isCompleted() ? Set.of() : Set.copyOf(failureRepository.findAllNames());
+        progress = new MigrationProgress(checkpoint.isCompleted(), checkpoint.isListed(), checkpoint.getLastKey(),
+                failed);
+    }
+
+    @Override
+    public String put(String key, InputStream in, long size, String contentType) throws IOException {
+        return delegate.put(keyLayout.storageKey(key), in, size, contentType);
+    }
+
+    @Override
+    public CompletableFuture<String> putAsync(String key, InputStream in, long size, String contentType) {
+        return delegate.putAsync(keyLayout.storageKey(key), in, size, contentType);
+    }
+
+    @Override
+    public StorageObject get(String key, String range, String ifRange) {
+        String storageKey = keyLayout.storageKey(key);
+        if (hasMoved(key)) {
+            return delegate.get(storageKey, range, ifRange);
+        }
+        try {
+            return delegate.get(storageKey, range, ifRange);
+        } catch (StorageException e) {
+            if (!isNotFound(e)) {
+                throw e;
+            }
+        }
+        try {
+            return delegate.get(key, range, ifRange);
+        } catch (StorageException e) {
+            if (!isNotFound(e)) {
+                throw e;
+            }
+            // Moved by the migration between the two reads
+            return delegate.get(storageKey, range, ifRange);
+        }
+    }
+
+    @Override
+    public CompletableFuture<StorageObject> getAsync(String key, String range, String ifRange) {
+        String storageKey = keyLayout.storageKey(key);
+        CompletableFuture<StorageObject> read = delegate.getAsync(storageKey, range, ifRange);
+        if (hasMoved(key)) {
+            return read;
+        }
+        return read.exceptionallyCompose(error -> !isNotFound(error)
+                ? CompletableFuture.failedFuture(error)
+                : delegate.getAsync(key, range, ifRange).exceptionallyCompose(legacyError -> !isNotFound(legacyError)
+                        ? CompletableFuture.failedFuture(legacyError)
+                        : delegate.getAsync(storageKey, range, ifRange)));
+    }
+
+    @Override
+    public String copy(String sourceKey, String targetKey) {
+        return delegate.copy(resolve(sourceKey), keyLayout.storageKey(targetKey));
+    }
+
+    @Override
+    public ObjectInfo stat(String key) {
+        ObjectInfo object = delegate.stat(keyLayout.storageKey(key));
+        if (object == null && !hasMoved(key)) {
+            object = delegate.stat(key);
+        }
+        return object == null ? null
+                : new ObjectInfo(key, object.size(), object.contentType(), object.eTag(), object.lastModified());
+    }
+
+    @Override
+    public CompletableFuture<ObjectInfo> statAsync(String key) {
+        CompletableFuture<ObjectInfo> stat = delegate.statAsync(keyLayout.storageKey(key));
+        if (!hasMoved(key)) {
+            stat = stat.thenCompose(object -> object != null
+                    ? CompletableFuture.completedFuture(object)
+                    : delegate.statAsync(key));
+        }
+        return stat.thenApply(object -> object == null ? null
+                : new ObjectInfo(key, object.size(), object.contentType(), object.eTag(), object.lastModified()));
+    }
+
+    @Override
+    public void delete(String key) {
+        if (hasMoved(key)) {
+            delegate.delete(keyLayout.storageKey(key));
+        } else {
+            // Both names in one request
+            String error = deleteAll(List.of(key)).get(key);
+            if (error != null) {
+                throw new StorageException(500, "Failed to delete " + key + ": " + error);
+            }
+        }
+    }
+
+    @Override
+    public Map<String, String> deleteAll(Collection<String> keys) {
+        Map<String, String> keysByStorageKey = new HashMap<>();
+        for (String key : keys) {
+            keysByStorageKey.put(keyLayout.storageKey(key), key);
+            if (!hasMoved(key)) {
+                keysByStorageKey.put(key, key);
+            }
+        }
+
+        Map<String, String> errors = new HashMap<>();
+        delegate.deleteAll(keysByStorageKey.keySet())
+                .forEach((storageKey, error) -> errors.put(keysByStorageKey.get(storageKey), error));
+        return errors;
+    }
+
+    /**
+     * A key's partition is a hash of the whole key, so no prefix narrows it down: a prefix listing
+     * visits every partition, 16^prefix-length LIST requests at least. Above
+     * storage.key-layout.max-listed-partitions it is refused rather than flooding the bucket;
+     * listing everything is a single pass over the bucket.
+     */
+    @Override
+    public void list(String prefix, Consumer<ObjectInfo> consumer) {
+        boolean everything = prefix == null || prefix.isEmpty();
+        Consumer<ObjectInfo> convert = object -> {
+            String key = keyLayout.keyOf(object.key());
+            if (key != null) {
+                consumer.accept(new ObjectInfo(key, object.size(), object.contentType(), object.eTag(),
+                        object.lastModified()));
+            } else if (everything && legacyNamesLeft()) {
+                consumer.accept(object);
+            }
+        };
+
+        if (everything) {
+            delegate.list(prefix, convert);
+            return;
+        }
+        String[] partitions = keyLayout.prefixes();
+        if (partitions.length > maxListedPartitions) {
+            throw new StorageException(HttpStatus.NOT_IMPLEMENTED.value(), "Listing by prefix would take "
+                    + partitions.length + " requests with this key layout; list everything and filter instead");
+        }
+        for (String partition : partitions) {
+            delegate.list(partition + prefix, convert);
+        }
+        if (legacyNamesLeft()) {
+            // Hashed names matching the prefix were already visited above
+            delegate.list(prefix, object -> {
+                if (keyLayout.keyOf(object.key()) == null) {
+                    consumer.accept(object);
+                }
+            });
+        }
+    }
+
+    @Override
+    public String presignGet(String key, Duration duration) {
+        return delegate.presignGet(resolve(key), duration);
+    }
+
+    @Override
+    public String presignPut(String key, String contentType, Duration duration) {
+        return delegate.presignPut(keyLayout.storageKey(key), contentType, duration);
+    }
+
+    // Name an existing object is stored under; a URL or copy can't fall back by itself
+    private String resolve(String key) {
+        String storageKey = keyLayout.storageKey(key);
+        if (!hasMoved(key) && delegate.stat(storageKey) == null && delegate.stat(key) != null) {
+            return key;
+        }
+        return storageKey;
+    }
+
+    // True when the object can only be under its hashed name; otherwise both names are tried
+    private boolean hasMoved(String key) {
+        if (!keyLayout.isLegacyFallback()) {
+            return true;
+        }
+        MigrationProgress current = progress;
+        if (current.completed()) {
+            return true;
+        }
+        if (current.failed().contains(key)) {
+            return false;
+        }
+        return current.listed() || (current.lastKey() != null && compareNames(key, current.lastKey()) <= 0);
+    }
+
+    private boolean legacyNamesLeft() {
+        return keyLayout.isLegacyFallback() && !progress.completed();
+    }
+
+    // The order of a bucket listing: by UTF-8 bytes, which differs from String.compareTo beyond the BMP
+    private static int compareNames(String a, String b) {
+        return Arrays.compareUnsigned(a.getBytes(StandardCharsets.UTF_8), b.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static boolean isNotFound(Throwable error) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        return cause instanceof StorageException storageException && storageException.getStatusCode() == 404;
+    }
+
+    // Names up to lastKey have moved unless they failed; all of them once the bucket has been listed
+    private record MigrationProgress(boolean completed, boolean listed, String lastKey, Set<String> failed) {}
+}
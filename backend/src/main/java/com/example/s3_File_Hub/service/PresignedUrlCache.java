@@ -0,0 +1,76 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Keeps recently signed GET URLs so the gallery doesn't pay for a SigV4 signature per tile.
+ * An entry is dropped once half of its signature lifetime has passed, so a URL handed out
+ * from the cache is always valid for at least half the requested duration.
+ */
+@Component
+public class PresignedUrlCache {
+
+    // freshUntil is a System.nanoTime() deadline, the clock Caffeine expires entries by
+    private record SignedUrl(String url, long freshUntil) {}
+
+    // URLs per object key and signature lifetime in seconds, so deleting an object drops all of its URLs at once
+    private final Cache<String, Map<Long, SignedUrl>> cache;
+
+    public PresignedUrlCache(@Value("${presign.cache.max-entries:10000}") long maxEntries) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Map<Long, SignedUrl>>() {
+                    @Override
+                    public long expireAfterCreate(String key, Map<Long, SignedUrl> urls, long currentTime) {
+                        // Until the last URL of the object goes stale
+                        long freshUntil = urls.values().stream().mapToLong(SignedUrl::freshUntil)
+                                .max().orElse(currentTime);
+                        return Math.max(0, freshUntil - currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Map<Long, SignedUrl> urls, long currentTime,
+                                                  long currentDuration) {
+                        return expireAfterCreate(key, urls, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Map<Long, SignedUrl> urls, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    public String get(String objectKey, Duration duration, Supplier<String> signer) {
+        long seconds = duration.toSeconds();
+        Map<Long, SignedUrl> urls = cache.getIfPresent(objectKey);
+        SignedUrl signed = urls == null ? null : urls.get(seconds);
+        if (signed != null && signed.freshUntil() - System.nanoTime() > 0) {
+            return signed.url();
+        }
+
+        SignedUrl fresh = new SignedUrl(signer.get(), System.nanoTime() + duration.dividedBy(2).toNanos());
+        cache.asMap().merge(objectKey, Map.of(seconds, fresh), (current, added) -> {
+            Map<Long, SignedUrl> merged = new HashMap<>(current);
+            merged.put(seconds, fresh);
+            return Map.copyOf(merged);
+        });
+        return fresh.url();
+    }
+
+    public void invalidate(String objectKey) {
+        cache.invalidate(objectKey);
+    }
+}
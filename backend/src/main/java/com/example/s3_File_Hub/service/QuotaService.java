@@ -0,0 +1,151 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.s3_File_Hub.model.StorageUsage;
+import com.example.s3_File_Hub.repository.BlobRepository;
+import com.example.s3_File_Hub.repository.FileMetadataRepository;
+import com.example.s3_File_Hub.repository.StorageUsageRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Running byte counters per owner and for the whole bucket. Uploads reserve their size up front
+ * with a conditional UPDATE, deletes give it back, and a scheduled job resets the counters from
+ * the file index (which is itself reconciled against S3). Counters changed within the grace period
+ * are left for a later run, since their latest uploads may not be indexed yet.
+ */
+@Service
+@Slf4j
+public class QuotaService {
+
+    private final StorageUsageRepository storageUsageRepository;
+    private final FileMetadataRepository fileMetadataRepository;
+    private final BlobRepository blobRepository;
+
+    @Value("${storage.quota.global-limit-mb:1024}")
+    private long globalLimitMB;
+
+    // Negative means no per-user limit
+    @Value("${storage.quota.user-limit-mb:-1}")
+    private long userLimitMB;
+
+    // Longer than any upload takes between reserving its size and being indexed
+    @Value("${storage.quota.reconcile-grace-minutes:60}")
+    private long reconcileGraceMinutes;
+
+    public QuotaService(StorageUsageRepository storageUsageRepository,
+                        FileMetadataRepository fileMetadataRepository,
+                        BlobRepository blobRepository) {
+        this.storageUsageRepository = storageUsageRepository;
+        this.fileMetadataRepository = fileMetadataRepository;
+        this.blobRepository = blobRepository;
+    }
+
+    @Transactional
+    public void reserve(String owner, long bytes) {
+        reserve(owner, bytes, bytes);
+    }
+
+    /**
+     * Reserves {@code bytes} against the owner and {@code storedBytes} against the bucket;
+     * they differ when the upload turned out to duplicate an existing blob.
+     */
+    @Transactional
+    public void reserve(String owner, long bytes, long storedBytes) {
+        if (storedBytes > 0) {
+            storageUsageRepository.ensureExists(StorageUsage.GLOBAL);
+            if (storageUsageRepository.tryAdd(StorageUsage.GLOBAL, storedBytes, toBytes(globalLimitMB)) == 0) {
+                throw new RuntimeException("Storage limit exceeded (" + globalLimitMB + "MB max)");
+            }
+        }
+
+        if (owner != null) {
+            storageUsageRepository.ensureExists(owner);
+            // Throwing here rolls back the global reservation as well
+            if (storageUsageRepository.tryAdd(owner, bytes, toBytes(userLimitMB)) == 0) {
+                throw new RuntimeException("Storage limit exceeded (" + userLimitMB + "MB max per user)");
+            }
+        }
+    }
+
+    // Fails fast before a direct upload starts; the bytes are only reserved once it completes
+    public void checkAvailable(String owner, long bytes) {
+        if (globalUsedBytes() + bytes > toBytes(globalLimitMB)) {
+            throw new RuntimeException("Storage limit exceeded (" + globalLimitMB + "MB max)");
+        }
+        if (owner != null && usedBytes(owner) + bytes > toBytes(userLimitMB)) {
+            throw new RuntimeException("Storage limit exceeded (" + userLimitMB + "MB max per user)");
+        }
+    }
+
+    @Transactional
+    public void release(String owner, long bytes) {
+        release(owner, bytes, bytes);
+    }
+
+    @Transactional
+    public void release(String owner, long bytes, long storedBytes) {
+        if (storedBytes > 0) {
+            storageUsageRepository.add(StorageUsage.GLOBAL, -storedBytes);
+        }
+        if (owner != null) {
+            storageUsageRepository.add(owner, -bytes);
+        }
+    }
+
+    public long usedBytes(String owner) {
+        return storageUsageRepository.findById(owner)
+                .map(StorageUsage::getUsedBytes)
+                .orElse(0L);
+    }
+
+    public long globalUsedBytes() {
+        return usedBytes(StorageUsage.GLOBAL);
+    }
+
+    @Scheduled(initialDelayString = "${storage.quota.reconcile-initial-delay-ms:120000}",
+            fixedDelayString = "${storage.quota.reconcile-interval-ms:900000}")
+    @Transactional
+    public void reconcile() {
+        // Taken before summing, so a reservation made while the index is summed is skipped too
+        LocalDateTime changedBefore = LocalDateTime.now().minusMinutes(reconcileGraceMinutes);
+        Map<String, Long> actual = new HashMap<>();
+        for (Object[] row : fileMetadataRepository.sumSizeByOwner()) {
+            actual.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        // Shared blobs count once towards the bucket, but in full for every owner holding them
+        actual.put(StorageUsage.GLOBAL, fileMetadataRepository.sumUnsharedSize() + blobRepository.sumSize());
+
+        Set<String> counted = new HashSet<>();
+        for (StorageUsage usage : storageUsageRepository.findAll()) {
+            counted.add(usage.getOwner());
+            actual.putIfAbsent(usage.getOwner(), 0L);
+        }
+        int corrected = 0;
+        int added = 0;
+        for (Map.Entry<String, Long> entry : actual.entrySet()) {
+            if (!counted.contains(entry.getKey())) {
+                storageUsageRepository.ensureExists(entry.getKey());
+                added++;
+            }
+            // Conditional UPDATE rather than setting the loaded entity, so a reservation made meanwhile isn't lost
+            corrected += storageUsageRepository.reset(entry.getKey(), entry.getValue(), changedBefore);
+        }
+
+        log.info("Storage quotas reconciled: {} corrected, {} added", corrected, added);
+    }
+
+    private static long toBytes(long limitMB) {
+        return limitMB < 0 ? Long.MAX_VALUE : limitMB * 1024 * 1024;
+    }
+}
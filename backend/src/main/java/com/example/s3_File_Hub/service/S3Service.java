@@ -1,149 +1,310 @@
 package com.example.s3_File_Hub.service;
 
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
-import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.example.s3_File_Hub.dto.DeleteResult;
+import com.example.s3_File_Hub.dto.FilePage;
+import com.example.s3_File_Hub.model.FileMetadata;
 import com.example.s3_File_Hub.model.StorageStats;
 
-import software.amazon.awssdk.core.sync.RequestBody;
-import software.amazon.awssdk.services.s3.S3Client;
-import software.amazon.awssdk.services.s3.model.*;
-import software.amazon.awssdk.services.s3.presigner.S3Presigner;
-import software.amazon.awssdk.services.s3.presigner.model.*;
+import io.micrometer.core.instrument.LongTaskTimer;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Uploads, downloads, deletes and links for the user's files. Bytes go to whichever
+ * {@link StorageEngine} is configured (S3 by default, despite the name).
+ */
 @Service
+@Slf4j
 public class S3Service {
 
-    private final S3Client s3Client;
-    private final S3Presigner presigner;
+    private final StorageEngine storageEngine;
+    private final FileIndexService fileIndexService;
+    private final BlobService blobService;
+    private final QuotaService quotaService;
+    private final ThumbnailService thumbnailService;
+    private final PresignedUrlCache presignedUrlCache;
+    private final ObjectCache objectCache;
+    // Active count is the number of uploads in flight
+    private final LongTaskTimer uploadTimer;
 
-    @Value("${aws.s3.bucket-name}")
-    private String bucketName;
+    public S3Service(StorageEngine storageEngine,
+                     FileIndexService fileIndexService,
+                     BlobService blobService,
+                     QuotaService quotaService,
+                     ThumbnailService thumbnailService,
+                     PresignedUrlCache presignedUrlCache,
+                     ObjectCache objectCache,
+                     MeterRegistry meterRegistry) {
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.blobService = blobService;
+        this.quotaService = quotaService;
+        this.thumbnailService = thumbnailService;
+        this.presignedUrlCache = presignedUrlCache;
+        this.objectCache = objectCache;
+        this.uploadTimer = LongTaskTimer.builder("files.uploads").register(meterRegistry);
+    }
 
-    public S3Service(S3Client s3Client, S3Presigner presigner) {
-        this.s3Client = s3Client;
-        this.presigner = presigner;
+    /**
+     * Completes on the storage engine's threads when it uploads asynchronously (S3 with
+     * aws.s3.engine=crt) instead of holding a servlet thread; otherwise it runs synchronously.
+     */
+    public CompletableFuture<String> uploadFileAsync(MultipartFile file, String owner) {
+        LongTaskTimer.Sample upload = uploadTimer.start();
+        return transferAsync(file, owner).whenComplete((key, error) -> upload.stop());
     }
 
-    public String uploadFile(MultipartFile file) throws IOException {
-        StorageStats stats = getStorageStats();
-        if (stats.getTotalMB() > 1024) {
-            throw new RuntimeException("Storage limit exceeded (1GB max)");
+    private CompletableFuture<String> transferAsync(MultipartFile file, String owner) {
+        String key = UUID.randomUUID() + "_" + file.getOriginalFilename();
+        BlobReference blob;
+        try {
+            blob = acquireBlob(file, owner);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+        if (blob.eTag() != null) {
+            return CompletableFuture.completedFuture(recordUpload(key, file, owner, blob.hash(), blob.eTag()));
+        }
+        String objectKey = blob.hash() != null ? BlobService.blobKeyFor(blob.hash()) : key;
+
+        InputStream in;
+        try {
+            in = file.getInputStream();
+        } catch (IOException e) {
+            releaseBlob(blob.hash(), owner, file.getSize());
+            return CompletableFuture.failedFuture(e);
         }
 
+        return storageEngine.putAsync(objectKey, in, file.getSize(), file.getContentType())
+                .whenComplete((eTag, error) -> {
+                    try {
+                        in.close();
+                    } catch (IOException e) {
+                        log.warn("Failed to close upload stream: {}", key, e);
+                    }
+                    if (error != null) {
+                        releaseBlob(blob.hash(), owner, file.getSize());
+                    }
+                })
+                .thenApply(eTag -> recordUpload(key, file, owner, blob.hash(), eTag));
+    }
+
+    public String uploadFile(MultipartFile file, String owner) throws IOException {
+        LongTaskTimer.Sample upload = uploadTimer.start();
+        try {
+            return transfer(file, owner);
+        } finally {
+            upload.stop();
+        }
+    }
+
+    private String transfer(MultipartFile file, String owner) throws IOException {
         String key = UUID.randomUUID() + "_" + file.getOriginalFilename();
+        BlobReference blob = acquireBlob(file, owner);
+        if (blob.eTag() != null) {
+            return recordUpload(key, file, owner, blob.hash(), blob.eTag());
+        }
+        String objectKey = blob.hash() != null ? BlobService.blobKeyFor(blob.hash()) : key;
+
+        String eTag;
+        try (InputStream in = file.getInputStream()) {
+            eTag = storageEngine.put(objectKey, in, file.getSize(), file.getContentType());
+        } catch (IOException | RuntimeException e) {
+            releaseBlob(blob.hash(), owner, file.getSize());
+            throw e;
+        }
+
+        return recordUpload(key, file, owner, blob.hash(), eTag);
+    }
+
+    // eTag is set when the blob is already stored and the upload can skip sending the bytes;
+    // hash is null when the upload is stored under its own key instead of a blob
+    private record BlobReference(String hash, String eTag) {}
+
+    /**
+     * Hashes the upload (already spooled locally by the multipart resolver), reserves quota and takes
+     * a reference on its blob. The bucket-wide counter is charged up front and refunded when the
+     * blob already existed, so it counts every blob exactly once while the blob exists.
+     */
+    private BlobReference acquireBlob(MultipartFile file, String owner) throws IOException {
+        String hash;
+        try (InputStream in = file.getInputStream()) {
+            hash = BlobService.sha256(in);
+        }
+
+        quotaService.reserve(owner, file.getSize());
+        int refCount;
+        try {
+            refCount = blobService.acquire(hash, file.getSize());
+        } catch (RuntimeException e) {
+            quotaService.release(owner, file.getSize());
+            throw e;
+        }
+        if (refCount == 1) {
+            return new BlobReference(hash, null);
+        }
+        if (refCount == 0) {
+            // The blob is being deleted and can't take a reference; the upload keeps its own copy
+            return new BlobReference(null, null);
+        }
+
+        quotaService.release(null, 0, file.getSize());
+        try {
+            // A second reference may arrive while the first upload is still sending the bytes
+            return new BlobReference(hash, blobService.eTag(hash));
+        } catch (RuntimeException e) {
+            releaseBlob(hash, owner, file.getSize());
+            throw e;
+        }
+    }
 
-        PutObjectRequest putRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .contentType(file.getContentType())
-                .build();
+    private void releaseBlob(String hash, String owner, long size) {
+        boolean deleted = hash == null || blobService.release(hash);
+        quotaService.release(owner, size, deleted ? size : 0);
+    }
 
-        s3Client.putObject(putRequest, RequestBody.fromBytes(file.getBytes()));
+    private String recordUpload(String key, MultipartFile file, String owner, String hash, String eTag) {
+        fileIndexService.record(key, file.getSize(), file.getContentType(), owner, eTag, hash);
+        thumbnailService.submit(key, file.getContentType());
         return key;
     }
 
     public byte[] downloadFile(String key) {
-        GetObjectRequest getRequest = GetObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
+        try (StorageObject object = objectCache.open(fileIndexService.storageKey(key), null, null)) {
+            return object.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Opens the file as a stream, optionally limited to a single byte range.
+     * When the If-Range validator no longer matches, the whole file is returned instead.
+     * Served from the {@link ObjectCache} when it holds the file. The caller must close the returned stream.
+     */
+    public StorageObject openFile(String key, String range, String ifRange) {
+        return objectCache.open(fileIndexService.storageKey(key), range, ifRange);
+    }
+
+    /**
+     * Same as {@link #openFile} but completes without holding the calling thread when the
+     * storage engine reads asynchronously (S3 with aws.s3.engine=crt).
+     */
+    public CompletableFuture<StorageObject> openFileAsync(String key, String range, String ifRange) {
+        return objectCache.openAsync(fileIndexService.storageKey(key), range, ifRange);
+    }
 
-        return s3Client.getObjectAsBytes(getRequest).asByteArray();
+    // Validators and size of the file without reading it; null when it doesn't exist
+    public StorageEngine.ObjectInfo statFile(String key) {
+        return objectCache.stat(fileIndexService.storageKey(key));
     }
 
     public void deleteFileWithThumbnail(String key) {
-        DeleteObjectRequest deleteRequest = DeleteObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
-        s3Client.deleteObject(deleteRequest);
+        // Deduplicated files have no object of their own; their blob goes with the last reference
+        boolean shared = fileIndexService.find(key).map(m -> m.getContentHash() != null).orElse(false);
+        if (!shared) {
+            storageEngine.delete(key);
+            objectCache.invalidate(key);
+        }
+        presignedUrlCache.invalidate(key);
 
-        String baseName = key.substring(key.lastIndexOf("/") + 1);
-        String thumbnailKey = "thumbnails/" + baseName;
+        fileIndexService.remove(key).ifPresent(metadata -> releaseStorage(List.of(metadata)));
 
-        try {
-            DeleteObjectRequest thumbnailDeleteRequest = DeleteObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(thumbnailKey)
-                    .build();
-            s3Client.deleteObject(thumbnailDeleteRequest);
-        } catch (Exception e) {
-            System.err.println("Failed to delete thumbnail: " + thumbnailKey);
+        for (String thumbnailKey : thumbnailService.thumbnailKeys(key)) {
+            try {
+                storageEngine.delete(thumbnailKey);
+                objectCache.invalidate(thumbnailKey);
+                presignedUrlCache.invalidate(thumbnailKey);
+            } catch (Exception e) {
+                log.warn("Failed to delete thumbnail: {}", thumbnailKey, e);
+            }
         }
     }
 
-    public List<String> listFiles() {
-        ListObjectsV2Response response = s3Client.listObjectsV2(
-                ListObjectsV2Request.builder()
-                        .bucket(bucketName)
-                        .build()
-        );
-
-        return response.contents().stream()
-                .map(S3Object::key)
-                .filter(key -> !key.startsWith("thumbnails/"))
+    public List<DeleteResult> deleteFiles(List<String> keys) {
+        List<String> objectKeys = new ArrayList<>();
+        for (String key : keys) {
+            objectKeys.add(key);
+            objectKeys.addAll(thumbnailService.thumbnailKeys(key));
+        }
+
+        Map<String, String> errors = storageEngine.deleteAll(objectKeys);
+        objectKeys.stream().filter(key -> !errors.containsKey(key)).forEach(key -> {
+            objectCache.invalidate(key);
+            presignedUrlCache.invalidate(key);
+        });
+
+        List<String> deleted = keys.stream().filter(key -> !errors.containsKey(key)).toList();
+        releaseStorage(fileIndexService.removeAll(deleted));
+
+        return keys.stream()
+                .map(key -> new DeleteResult(key, !errors.containsKey(key), errors.get(key)))
                 .toList();
     }
 
-    public List<String> listThumbnails() {
-        ListObjectsV2Request request = ListObjectsV2Request.builder()
-                .bucket(bucketName)
-                .prefix("thumbnails/")
-                .build();
-
-        ListObjectsV2Response response = s3Client.listObjectsV2(request);
-        return response.contents().stream().map(S3Object::key).toList();
+    // Gives back the quota of removed files; shared bytes only leave the bucket with their blob
+    private void releaseStorage(List<FileMetadata> removed) {
+        Map<String, Long> releasedByOwner = new HashMap<>();
+        long releasedStored = 0;
+        for (FileMetadata metadata : removed) {
+            // HashMap accepts the null owner of reconciled files as a key
+            releasedByOwner.merge(metadata.getOwner(), metadata.getSize(), Long::sum);
+            if (metadata.getContentHash() == null || blobService.release(metadata.getContentHash())) {
+                releasedStored += metadata.getSize();
+            }
+        }
+        releasedByOwner.forEach((owner, bytes) -> quotaService.release(owner, bytes, 0));
+        quotaService.release(null, 0, releasedStored);
     }
 
-    public String getPresignedUrl(String key, Duration duration) {
-        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .build();
+    public List<String> listFiles() {
+        return fileIndexService.listKeys();
+    }
 
-        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
-                .signatureDuration(duration)
-                .getObjectRequest(getObjectRequest)
-                .build();
+    public FilePage listFiles(String prefix, String contentType, boolean newestFirst, String cursor, int size) {
+        return fileIndexService.page(prefix, contentType, newestFirst, cursor, size);
+    }
 
-        URL url = presigner.presignGetObject(presignRequest).url();
-        return url.toString();
+    public List<String> listThumbnails() {
+        return fileIndexService.listThumbnailKeys();
     }
 
-    public String generatePresignedUploadUrl(String key, String contentType) {
-        PutObjectRequest objectRequest = PutObjectRequest.builder()
-                .bucket(bucketName)
-                .key(key)
-                .contentType(contentType)
-                .build();
+    public String getPresignedUrl(String key, Duration duration) {
+        return presignedUrlCache.get(key, duration,
+                () -> storageEngine.presignGet(fileIndexService.storageKey(key), duration));
+    }
 
-        PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
-                .putObjectRequest(objectRequest)
-                .signatureDuration(Duration.ofMinutes(10))
-                .build();
+    public Map<String, String> getPresignedUrls(List<String> keys, Duration duration) {
+        // One index lookup for the whole batch instead of one per cache miss
+        Map<String, String> storageKeys = fileIndexService.storageKeys(keys);
+        Map<String, String> urls = new LinkedHashMap<>();
+        for (String key : keys) {
+            urls.put(key, presignedUrlCache.get(key, duration,
+                    () -> storageEngine.presignGet(storageKeys.get(key), duration)));
+        }
+        return urls;
+    }
 
-        PresignedPutObjectRequest presignedRequest = presigner.presignPutObject(presignRequest);
-        return presignedRequest.url().toString();
+    public String generatePresignedUploadUrl(String key, String contentType) {
+        return storageEngine.presignPut(key, contentType, Duration.ofMinutes(10));
     }
 
     public StorageStats getStorageStats() {
-        ListObjectsV2Response response = s3Client.listObjectsV2(
-                ListObjectsV2Request.builder().bucket(bucketName).build()
-        );
-
-        long totalBytes = response.contents().stream()
-                .filter(obj -> !obj.key().startsWith("thumbnails/"))
-                .mapToLong(S3Object::size)
-                .sum();
-
-        return new StorageStats(totalBytes / 1024.0 / 1024.0); // return MB
+        return new StorageStats(quotaService.globalUsedBytes() / 1024.0 / 1024.0); // return MB
     }
 }
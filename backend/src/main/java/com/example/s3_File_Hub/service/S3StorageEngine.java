@@ -0,0 +1,510 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.core.async.AsyncResponseTransformer;
+import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.*;
+import software.amazon.awssdk.services.s3.presigner.S3Presigner;
+import software.amazon.awssdk.services.s3.presigner.model.GetObjectPresignRequest;
+import software.amazon.awssdk.services.s3.presigner.model.PutObjectPresignRequest;
+import software.amazon.awssdk.transfer.s3.S3TransferManager;
+import software.amazon.awssdk.transfer.s3.model.UploadRequest;
+
+/**
+ * Objects in the configured S3 bucket. Large uploads are split into parts sent in parallel;
+ * with aws.s3.engine=crt uploads, ranged reads and listings go through the CRT client instead.
+ */
+@Service
+@ConditionalOnProperty(name = "storage.engine", havingValue = "s3", matchIfMissing = true)
+@Slf4j
+public class S3StorageEngine implements StorageEngine {
+
+    private static final int DELETE_BATCH_SIZE = 1000;
+
+    // Larger objects have to be copied part by part
+    private static final long MAX_COPY_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+    private static final long COPY_PART_SIZE = 512L * 1024 * 1024;
+
+    private final S3Client s3Client;
+    private final S3Presigner presigner;
+    private final ExecutorService transferExecutor;
+    // Only present when aws.s3.engine=crt
+    private final S3AsyncClient s3AsyncClient;
+    private final S3TransferManager transferManager;
+
+    @Value("${aws.s3.bucket-name}")
+    private String bucketName;
+
+    // S3 requires every part except the last to be at least 5 MB
+    @Value("${aws.s3.multipart.part-size-mb:8}")
+    private int partSizeMB;
+
+    // Parts in flight per upload; bounds heap use to roughly concurrency * part size
+    @Value("${aws.s3.multipart.concurrency:4}")
+    private int uploadConcurrency;
+
+    public S3StorageEngine(S3Client s3Client, S3Presigner presigner,
+                           @Qualifier("transferExecutor") ExecutorService transferExecutor,
+                           ObjectProvider<S3AsyncClient> s3AsyncClient,
+                           ObjectProvider<S3TransferManager> transferManager) {
+        this.s3Client = s3Client;
+        this.presigner = presigner;
+        this.transferExecutor = transferExecutor;
+        this.s3AsyncClient = s3AsyncClient.getIfAvailable();
+        this.transferManager = transferManager.getIfAvailable();
+    }
+
+    @Override
+    public String put(String key, InputStream in, long size, String contentType) throws IOException {
+        long partSize = partSizeMB * 1024L * 1024L;
+        if (size > partSize) {
+            return multipartUpload(key, contentType, in, (int) partSize);
+        }
+
+        PutObjectRequest putRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+        return s3Client.putObject(putRequest, RequestBody.fromInputStream(in, size)).eTag();
+    }
+
+    /**
+     * Uploads through the CRT transfer manager when aws.s3.engine=crt, completing on the SDK's
+     * event loop instead of the calling thread. With the default engine it runs synchronously.
+     */
+    @Override
+    public CompletableFuture<String> putAsync(String key, InputStream in, long size, String contentType) {
+        if (transferManager == null) {
+            return StorageEngine.super.putAsync(key, in, size, contentType);
+        }
+
+        UploadRequest uploadRequest = UploadRequest.builder()
+                .putObjectRequest(PutObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .contentType(contentType)
+                        .build())
+                .requestBody(AsyncRequestBody.fromInputStream(in, size, transferExecutor))
+                .build();
+        return transferManager.upload(uploadRequest).completionFuture()
+                .thenApply(upload -> upload.response().eTag());
+    }
+
+    private String multipartUpload(String key, String contentType, InputStream in, int partSize) throws IOException {
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build()).uploadId();
+
+        Semaphore permits = new Semaphore(uploadConcurrency);
+        List<CompletableFuture<CompletedPart>> parts = new ArrayList<>();
+
+        try {
+            int partNumber = 1;
+            while (true) {
+                // Take a permit before reading so at most `uploadConcurrency` part buffers are alive
+                permits.acquire();
+                byte[] chunk = in.readNBytes(partSize);
+                if (chunk.length == 0) {
+                    permits.release();
+                    break;
+                }
+                if (parts.stream().anyMatch(CompletableFuture::isCompletedExceptionally)) {
+                    permits.release();
+                    break;
+                }
+
+                int number = partNumber++;
+                parts.add(CompletableFuture
+                        .supplyAsync(() -> uploadPart(key, uploadId, number, chunk), transferExecutor)
+                        .whenComplete((part, error) -> permits.release()));
+            }
+
+            List<CompletedPart> completedParts = parts.stream().map(CompletableFuture::join).toList();
+
+            return s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(completedParts).build())
+                    .build()).eTag();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            abortMultipartUpload(key, uploadId, parts);
+            throw new IOException("Upload interrupted: " + key, e);
+        } catch (CompletionException e) {
+            abortMultipartUpload(key, uploadId, parts);
+            throw new RuntimeException("Multipart upload failed: " + key, e.getCause());
+        } catch (IOException | RuntimeException e) {
+            abortMultipartUpload(key, uploadId, parts);
+            throw e;
+        }
+    }
+
+    private CompletedPart uploadPart(String key, String uploadId, int partNumber, byte[] chunk) {
+        UploadPartResponse response = s3Client.uploadPart(UploadPartRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .contentLength((long) chunk.length)
+                        .build(),
+                RequestBody.fromBytes(chunk));
+
+        return CompletedPart.builder()
+                .partNumber(partNumber)
+                .eTag(response.eTag())
+                .build();
+    }
+
+    private void abortMultipartUpload(String key, String uploadId, List<CompletableFuture<CompletedPart>> parts) {
+        // Let in-flight parts settle first, otherwise S3 may keep a part uploaded after the abort
+        parts.forEach(part -> part.handle((p, e) -> null).join());
+        try {
+            s3Client.abortMultipartUpload(AbortMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .uploadId(uploadId)
+                    .build());
+        } catch (Exception e) {
+            log.warn("Failed to abort multipart upload: {}", key, e);
+        }
+    }
+
+    @Override
+    public StorageObject get(String key, String range, String ifRange) {
+        GetObjectRequest fullRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        GetObjectRequest request = rangedRequest(fullRequest, range, ifRange);
+
+        try {
+            try {
+                return storageObject(s3Client.getObject(request));
+            } catch (S3Exception e) {
+                if (request != fullRequest && e.statusCode() == 412) {
+                    return storageObject(s3Client.getObject(fullRequest));
+                }
+                throw e;
+            }
+        } catch (S3Exception e) {
+            throw new StorageException(e.statusCode(), "Failed to read " + key, e);
+        }
+    }
+
+    /**
+     * Same as {@link #get} but completes without holding the calling thread while S3 answers
+     * when the CRT engine is configured. With the default engine it runs synchronously.
+     */
+    @Override
+    public CompletableFuture<StorageObject> getAsync(String key, String range, String ifRange) {
+        if (s3AsyncClient == null) {
+            return StorageEngine.super.getAsync(key, range, ifRange);
+        }
+
+        GetObjectRequest fullRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        GetObjectRequest request = rangedRequest(fullRequest, range, ifRange);
+
+        return s3AsyncClient.getObject(request, AsyncResponseTransformer.<GetObjectResponse>toBlockingInputStream())
+                .exceptionallyCompose(e -> request != fullRequest && statusCode(e) == 412
+                        ? s3AsyncClient.getObject(fullRequest,
+                                AsyncResponseTransformer.<GetObjectResponse>toBlockingInputStream())
+                        : CompletableFuture.failedFuture(e))
+                .handle((object, error) -> {
+                    if (error == null) {
+                        return storageObject(object);
+                    }
+                    Throwable cause = unwrap(error);
+                    if (cause instanceof S3Exception s3Exception) {
+                        throw new StorageException(s3Exception.statusCode(), "Failed to read " + key, s3Exception);
+                    }
+                    throw error instanceof CompletionException completion ? completion : new CompletionException(cause);
+                });
+    }
+
+    // Returns fullRequest itself when the range can't be honoured
+    private GetObjectRequest rangedRequest(GetObjectRequest fullRequest, String range, String ifRange) {
+        // Weak validators can never satisfy If-Range, so the full entity is sent
+        if (range == null || (ifRange != null && ifRange.startsWith("W/"))) {
+            return fullRequest;
+        }
+
+        // If-Range is checked by S3 itself through If-Match / If-Unmodified-Since on the ranged GET
+        GetObjectRequest.Builder rangedRequest = fullRequest.toBuilder().range(range);
+        if (ifRange != null) {
+            if (ifRange.startsWith("\"")) {
+                rangedRequest.ifMatch(ifRange);
+            } else {
+                try {
+                    rangedRequest.ifUnmodifiedSince(
+                            ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant());
+                } catch (DateTimeParseException e) {
+                    return fullRequest;
+                }
+            }
+        }
+        return rangedRequest.build();
+    }
+
+    private static int statusCode(Throwable error) {
+        return unwrap(error) instanceof S3Exception s3Exception ? s3Exception.statusCode() : -1;
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static StorageObject storageObject(ResponseInputStream<GetObjectResponse> responseStream) {
+        GetObjectResponse response = responseStream.response();
+        return new StorageObject(responseStream, response.contentType(), response.contentLength(),
+                response.contentRange(), response.eTag(), response.lastModified()) {
+            // Closing a half-read response would drain the rest of the object to reuse the connection;
+            // the inherited "in" field is a plain InputStream, so abort through the typed reference
+            @Override
+            public void abort() {
+                try {
+                    responseStream.abort();
+                } catch (RuntimeException e) {
+                    // Nothing left to do with an abandoned stream
+                }
+            }
+        };
+    }
+
+    @Override
+    public ObjectInfo stat(String key) {
+        try {
+            HeadObjectResponse response = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .build());
+            return new ObjectInfo(key, response.contentLength(), response.contentType(), response.eTag(),
+                    response.lastModified());
+        } catch (S3Exception e) {
+            if (e.statusCode() == 404) {
+                return null;
+            }
+            throw e;
+        }
+    }
+
+    /** Same as {@link #stat}, through the CRT client when it is configured, like {@link #getAsync}. */
+    @Override
+    public CompletableFuture<ObjectInfo> statAsync(String key) {
+        if (s3AsyncClient == null) {
+            return StorageEngine.super.statAsync(key);
+        }
+
+        return s3AsyncClient.headObject(HeadObjectRequest.builder()
+                        .bucket(bucketName)
+                        .key(key)
+                        .build())
+                .handle((response, error) -> {
+                    if (error == null) {
+                        return new ObjectInfo(key, response.contentLength(), response.contentType(), response.eTag(),
+                                response.lastModified());
+                    }
+                    if (statusCode(error) == 404) {
+                        return null;
+                    }
+                    throw error instanceof CompletionException completion ? completion
+                            : new CompletionException(unwrap(error));
+                });
+    }
+
+    /**
+     * Copies inside the bucket without downloading: one CopyObject request, or a multipart copy
+     * for objects over CopyObject's 5 GB limit. Content type and user metadata are kept.
+     */
+    @Override
+    public String copy(String sourceKey, String targetKey) {
+        HeadObjectResponse source;
+        try {
+            source = s3Client.headObject(HeadObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(sourceKey)
+                    .build());
+        } catch (S3Exception e) {
+            throw new StorageException(e.statusCode(), "Failed to copy " + sourceKey, e);
+        }
+        if (source.contentLength() <= MAX_COPY_OBJECT_SIZE) {
+            return s3Client.copyObject(CopyObjectRequest.builder()
+                    .sourceBucket(bucketName)
+                    .sourceKey(sourceKey)
+                    .destinationBucket(bucketName)
+                    .destinationKey(targetKey)
+                    .build()).copyObjectResult().eTag();
+        }
+
+        String uploadId = s3Client.createMultipartUpload(CreateMultipartUploadRequest.builder()
+                .bucket(bucketName)
+                .key(targetKey)
+                .contentType(source.contentType())
+                .metadata(source.metadata())
+                .build()).uploadId();
+        try {
+            List<CompletedPart> parts = new ArrayList<>();
+            for (long first = 0; first < source.contentLength(); first += COPY_PART_SIZE) {
+                long last = Math.min(first + COPY_PART_SIZE, source.contentLength()) - 1;
+                int partNumber = parts.size() + 1;
+                UploadPartCopyResponse response = s3Client.uploadPartCopy(UploadPartCopyRequest.builder()
+                        .sourceBucket(bucketName)
+                        .sourceKey(sourceKey)
+                        .destinationBucket(bucketName)
+                        .destinationKey(targetKey)
+                        .uploadId(uploadId)
+                        .partNumber(partNumber)
+                        .copySourceRange("bytes=" + first + "-" + last)
+                        .copySourceIfMatch(source.eTag())
+                        .build());
+                parts.add(CompletedPart.builder()
+                        .partNumber(partNumber)
+                        .eTag(response.copyPartResult().eTag())
+                        .build());
+            }
+
+            return s3Client.completeMultipartUpload(CompleteMultipartUploadRequest.builder()
+                    .bucket(bucketName)
+                    .key(targetKey)
+                    .uploadId(uploadId)
+                    .multipartUpload(CompletedMultipartUpload.builder().parts(parts).build())
+                    .build()).eTag();
+        } catch (RuntimeException e) {
+            abortMultipartUpload(targetKey, uploadId, List.of());
+            throw e;
+        }
+    }
+
+    @Override
+    public void delete(String key) {
+        s3Client.deleteObject(DeleteObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build());
+    }
+
+    @Override
+    public Map<String, String> deleteAll(Collection<String> keys) {
+        List<String> objectKeys = List.copyOf(keys);
+
+        // DeleteObjects accepts at most 1000 keys per request; batches run in parallel
+        List<List<String>> batches = new ArrayList<>();
+        for (int i = 0; i < objectKeys.size(); i += DELETE_BATCH_SIZE) {
+            batches.add(objectKeys.subList(i, Math.min(i + DELETE_BATCH_SIZE, objectKeys.size())));
+        }
+        List<CompletableFuture<DeleteObjectsResponse>> responses = batches.stream()
+                .map(batch -> CompletableFuture.supplyAsync(() -> deleteBatch(batch), transferExecutor))
+                .toList();
+
+        Map<String, String> errors = new HashMap<>();
+        for (int i = 0; i < batches.size(); i++) {
+            try {
+                responses.get(i).join().errors()
+                        .forEach(error -> errors.put(error.key(), error.code() + ": " + error.message()));
+            } catch (CompletionException e) {
+                String message = e.getCause().getMessage();
+                batches.get(i).forEach(key -> errors.put(key, message));
+            }
+        }
+        return errors;
+    }
+
+    private DeleteObjectsResponse deleteBatch(List<String> keys) {
+        List<ObjectIdentifier> identifiers = keys.stream()
+                .map(key -> ObjectIdentifier.builder().key(key).build())
+                .toList();
+
+        return s3Client.deleteObjects(DeleteObjectsRequest.builder()
+                .bucket(bucketName)
+                .delete(Delete.builder().objects(identifiers).quiet(true).build())
+                .build());
+    }
+
+    @Override
+    public void list(String prefix, Consumer<ObjectInfo> consumer) {
+        list(prefix, null, consumer);
+    }
+
+    // Lists the names after startAfter only (null for all), in the bucket's listing order
+    public void list(String prefix, String startAfter, Consumer<ObjectInfo> consumer) {
+        ListObjectsV2Request listRequest = ListObjectsV2Request.builder()
+                .bucket(bucketName)
+                .prefix(prefix)
+                .startAfter(startAfter)
+                .build();
+        Consumer<S3Object> convert = obj -> consumer.accept(
+                new ObjectInfo(obj.key(), obj.size(), null, obj.eTag(), obj.lastModified()));
+        if (s3AsyncClient != null) {
+            // Pages are delivered one at a time, so consumers don't need to be thread-safe
+            s3AsyncClient.listObjectsV2Paginator(listRequest).contents().subscribe(convert).join();
+        } else {
+            s3Client.listObjectsV2Paginator(listRequest).contents().forEach(convert);
+        }
+    }
+
+    @Override
+    public String presignGet(String key, Duration duration) {
+        GetObjectRequest getObjectRequest = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+
+        GetObjectPresignRequest presignRequest = GetObjectPresignRequest.builder()
+                .signatureDuration(duration)
+                .getObjectRequest(getObjectRequest)
+                .build();
+
+        return presigner.presignGetObject(presignRequest).url().toString();
+    }
+
+    @Override
+    public String presignPut(String key, String contentType, Duration duration) {
+        PutObjectRequest objectRequest = PutObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .contentType(contentType)
+                .build();
+
+        PutObjectPresignRequest presignRequest = PutObjectPresignRequest.builder()
+                .putObjectRequest(objectRequest)
+                .signatureDuration(duration)
+                .build();
+
+        return presigner.presignPutObject(presignRequest).url().toString();
+    }
+}
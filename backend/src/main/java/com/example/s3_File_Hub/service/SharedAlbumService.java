@@ -0,0 +1,115 @@
+package com.example.s3_File_Hub.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.example.s3_File_Hub.dto.SharedAlbumView;
+import com.example.s3_File_Hub.model.Album;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+
+/**
+ * Read-through cache for public share links. Concurrent misses for the same code share one load
+ * (Caffeine computes each key once), so a link that suddenly gets popular costs one database
+ * query and one round of signing. Entries never outlive the album's expiry or half the lifetime
+ * of the URLs they carry; unknown codes are remembered briefly too.
+ *
+ * The load runs on the task executor rather than inside the cache's map lock: a synchronous
+ * Caffeine load holds a monitor for the whole database query, which pins the carrier thread
+ * when requests run on virtual threads.
+ */
+@Service
+public class SharedAlbumService {
+
+    private static final Duration URL_DURATION = Duration.ofMinutes(10);
+    private static final Duration NOT_FOUND_TTL = Duration.ofSeconds(30);
+
+    private final AlbumService albumService;
+    private final S3Service s3Service;
+    private final FileIndexService fileIndexService;
+    private final AsyncCache<String, Optional<SharedAlbumView>> cache;
+
+    public SharedAlbumService(AlbumService albumService, S3Service s3Service, FileIndexService fileIndexService,
+                              @Qualifier("applicationTaskExecutor") Executor loadExecutor,
+                              @Value("${shared-albums.cache.max-entries:1000}") long maxEntries) {
+        this.albumService = albumService;
+        this.s3Service = s3Service;
+        this.fileIndexService = fileIndexService;
+        this.cache = Caffeine.newBuilder()
+                .executor(loadExecutor)
+                .maximumSize(maxEntries)
+                .expireAfter(new Expiry<String, Optional<SharedAlbumView>>() {
+                    @Override
+                    public long expireAfterCreate(String code, Optional<SharedAlbumView> view, long currentTime) {
+                        return ttl(view).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String code, Optional<SharedAlbumView> view,
+                                                  long currentTime, long currentDuration) {
+                        return ttl(view).toNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String code, Optional<SharedAlbumView> view,
+                                                long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .buildAsync();
+    }
+
+    public Optional<SharedAlbumView> getSharedAlbum(String shareCode) {
+        return cache.get(shareCode, this::load).join();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onAlbumsChanged(AlbumsChangedEvent event) {
+        cache.synchronous().asMap().values()
+                .removeIf(view -> view.isPresent() && event.albumIds().contains(view.get().getId()));
+    }
+
+    private Optional<SharedAlbumView> load(String shareCode) {
+        return albumService.getAlbumByShareCode(shareCode).map(this::toView);
+    }
+
+    private SharedAlbumView toView(Album album) {
+        List<String> fileKeys = album.getFileKeys() == null ? List.of() : new ArrayList<>(album.getFileKeys());
+        Map<String, String> previewUrls = s3Service.getPresignedUrls(fileKeys, URL_DURATION);
+
+        Map<String, String> thumbnailKeys = fileIndexService.thumbnailKeys(fileKeys);
+        Map<String, String> thumbnailUrls = new HashMap<>();
+        thumbnailKeys.forEach((key, thumbnailKey) ->
+                thumbnailUrls.put(key, s3Service.getPresignedUrl(thumbnailKey, URL_DURATION)));
+
+        return new SharedAlbumView(album.getId(), album.getName(), fileKeys, album.getExpiresAt(),
+                previewUrls, thumbnailUrls);
+    }
+
+    private static Duration ttl(Optional<SharedAlbumView> view) {
+        if (view.isEmpty()) {
+            return NOT_FOUND_TTL;
+        }
+        Duration ttl = URL_DURATION.dividedBy(2);
+        LocalDateTime expiresAt = view.get().getExpiresAt();
+        if (expiresAt != null) {
+            Duration untilExpiry = Duration.between(LocalDateTime.now(), expiresAt);
+            if (untilExpiry.compareTo(ttl) < 0) {
+                ttl = untilExpiry.isNegative() ? Duration.ZERO : untilExpiry;
+            }
+        }
+        return ttl;
+    }
+}
@@ -0,0 +1,85 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
+
+/**
+ * Where object bytes live. Keys are the flat, slash-separated names S3 uses; everything above this
+ * (index, blobs, quota, thumbnails) is the same whichever engine is configured with storage.engine.
+ */
+public interface StorageEngine {
+
+    // contentType is only filled in by stat; listings leave it null
+    record ObjectInfo(String key, long size, String contentType, String eTag, Instant lastModified) {}
+
+    /** Stores {@code size} bytes from the stream under the key and returns the object's ETag. */
+    String put(String key, InputStream in, long size, String contentType) throws IOException;
+
+    /**
+     * Same as {@link #put} but may complete on another thread. The stream stays open until the
+     * returned future completes; closing it is up to the caller.
+     */
+    default CompletableFuture<String> putAsync(String key, InputStream in, long size, String contentType) {
+        try {
+            return CompletableFuture.completedFuture(put(key, in, size, contentType));
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Opens the object, optionally limited to a single byte range ({@code bytes=...}).
+     * When the If-Range validator no longer matches, the whole object is returned instead.
+     * Missing objects and unsatisfiable ranges fail with a {@link StorageException}.
+     */
+    StorageObject get(String key, String range, String ifRange);
+
+    default CompletableFuture<StorageObject> getAsync(String key, String range, String ifRange) {
+        try {
+            return CompletableFuture.completedFuture(get(key, range, ifRange));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Copies the object to another key and returns the copy's ETag. Engines that can copy
+     * without moving the bytes through this process override it.
+     */
+    default String copy(String sourceKey, String targetKey) throws IOException {
+        try (StorageObject object = get(sourceKey, null, null)) {
+            return put(targetKey, object, object.getContentLength(), object.getContentType());
+        }
+    }
+
+    /** Size, type and validators of the object, or null when it doesn't exist. */
+    ObjectInfo stat(String key);
+
+    default CompletableFuture<ObjectInfo> statAsync(String key) {
+        try {
+            return CompletableFuture.completedFuture(stat(key));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    void delete(String key);
+
+    /** Deletes the keys and returns an error message for each key that could not be deleted. */
+    Map<String, String> deleteAll(Collection<String> keys);
+
+    /** Feeds every object whose key starts with the prefix (all objects for null) to the consumer. */
+    void list(String prefix, Consumer<ObjectInfo> consumer);
+
+    /** A URL that reads the object without further authentication until it expires. */
+    String presignGet(String key, Duration duration);
+
+    /** A URL that accepts one PUT of the object's content until it expires. */
+    String presignPut(String key, String contentType, Duration duration);
+}
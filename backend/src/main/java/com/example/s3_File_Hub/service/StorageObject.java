@@ -0,0 +1,64 @@
+package com.example.s3_File_Hub.service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * An opened object: its content stream together with the headers a download needs.
+ * {@code contentLength} is the length of what the stream returns, which for a ranged read is the
+ * range; {@code contentRange} is only set in that case. The caller must close (or abort) it.
+ */
+public class StorageObject extends FilterInputStream {
+
+    private final String contentType;
+    private final long contentLength;
+    private final String contentRange;
+    private final String eTag;
+    private final Instant lastModified;
+
+    public StorageObject(InputStream in, String contentType, long contentLength, String contentRange,
+                         String eTag, Instant lastModified) {
+        super(in);
+        this.contentType = contentType;
+        this.contentLength = contentLength;
+        this.contentRange = contentRange;
+        this.eTag = eTag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Gives up on the rest of the content. Engines backed by a connection drop it here, where
+     * close() would first drain the remaining bytes to reuse it.
+     */
+    public void abort() {
+        try {
+            close();
+        } catch (IOException e) {
+            // Nothing left to do with an abandoned stream
+        }
+    }
+
+    // Getters
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    public String getContentRange() {
+        return contentRange;
+    }
+
+    public String getETag() {
+        return eTag;
+    }
+
+    public Instant getLastModified() {
+        return lastModified;
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.s3_File_Hub.service;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Generates image thumbnails after upload on a fixed pool of workers fed by a bounded queue.
+ * The primary size is written to thumbnails/{name} (the layout the frontend already reads),
+ * every other size to thumbnails/{size}/{name}. When the queue is full new jobs are dropped
+ * rather than piling up in memory; the file simply keeps showing without a thumbnail.
+ */
+@Service
+@Slf4j
+public class ThumbnailService {
+
+    private final StorageEngine storageEngine;
+    private final FileIndexService fileIndexService;
+    private final ObjectCache objectCache;
+    private final ThreadPoolExecutor executor;
+    private final Timer processingTimer;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+
+    @Value("${thumbnails.enabled:true}")
+    private boolean enabled;
+
+    @Value("${thumbnails.primary-size:512}")
+    private int primarySize;
+
+    @Value("${thumbnails.sizes:128,512}")
+    private int[] sizes;
+
+    @Value("${thumbnails.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${thumbnails.retry-backoff-ms:1000}")
+    private long retryBackoffMs;
+
+    public ThumbnailService(StorageEngine storageEngine, FileIndexService fileIndexService, ObjectCache objectCache,
+                            MeterRegistry meterRegistry,
+                            @Value("${thumbnails.workers:2}") int workers,
+                            @Value("${thumbnails.queue-capacity:100}") int queueCapacity) {
+        this.storageEngine = storageEngine;
+        this.fileIndexService = fileIndexService;
+        this.objectCache = objectCache;
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new ThreadPoolExecutor.AbortPolicy());
+
+        meterRegistry.gauge("thumbnails.queue.depth", executor, e -> e.getQueue().size());
+        meterRegistry.gauge("thumbnails.active", executor, ThreadPoolExecutor::getActiveCount);
+        this.processingTimer = meterRegistry.timer("thumbnails.processing");
+        this.failedCounter = meterRegistry.counter("thumbnails.failed");
+        this.rejectedCounter = meterRegistry.counter("thumbnails.rejected");
+    }
+
+    public void submit(String key, String contentType) {
+        if (!enabled || contentType == null || !contentType.startsWith("image/")) {
+            return;
+        }
+        try {
+            executor.execute(() -> generateWithRetry(key));
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("Thumbnail queue full, skipping {}", key);
+        }
+    }
+
+    // Every key a thumbnail of this file may have been written to
+    public List<String> thumbnailKeys(String key) {
+        List<String> keys = new ArrayList<>();
+        keys.add(FileIndexService.thumbnailKeyFor(key));
+        Arrays.stream(sizes)
+                .filter(size -> size != primarySize)
+                .forEach(size -> keys.add(sizedKey(key, size)));
+        return keys;
+    }
+
+    private void generateWithRetry(String key) {
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            try {
+                processingTimer.recordCallable(() -> {
+                    generate(key);
+                    return null;
+                });
+                return;
+            } catch (Exception e) {
+                if (attempt == maxAttempts) {
+                    failedCounter.increment();
+                    log.warn("Thumbnail generation failed for {} after {} attempts", key, attempt, e);
+                    return;
+                }
+                try {
+                    Thread.sleep(retryBackoffMs * attempt);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void generate(String key) throws IOException {
+        BufferedImage source;
+        try (InputStream in = storageEngine.get(fileIndexService.storageKey(key), null, null)) {
+            source = ImageIO.read(in);
+        }
+        if (source == null) {
+            // Not a format ImageIO can decode; nothing to retry
+            log.info("No thumbnail for {}: unsupported image format", key);
+            return;
+        }
+
+        String primaryKey = FileIndexService.thumbnailKeyFor(key);
+        for (int size : sizes) {
+            String thumbnailKey = size == primarySize ? primaryKey : sizedKey(key, size);
+            byte[] jpeg = encodeJpeg(scale(source, size));
+            storageEngine.put(thumbnailKey, new ByteArrayInputStream(jpeg), jpeg.length, "image/jpeg");
+            // Regenerated thumbnails replace the ones a reader may have cached
+            objectCache.invalidate(thumbnailKey);
+        }
+
+        fileIndexService.setThumbnail(key, primaryKey);
+    }
+
+    private static BufferedImage scale(BufferedImage source, int maxSize) {
+        double ratio = Math.min(1.0, (double) maxSize / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * ratio));
+
+        // JPEG has no alpha channel, so transparent areas are flattened onto white
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = target.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.setColor(Color.WHITE);
+            g.fillRect(0, 0, width, height);
+            g.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return target;
+    }
+
+    private static byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static String sizedKey(String key, int size) {
+        return FileIndexService.THUMBNAIL_PREFIX + size + "/" + key.substring(key.lastIndexOf("/") + 1);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
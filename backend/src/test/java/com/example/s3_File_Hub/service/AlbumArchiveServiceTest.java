@@ -0,0 +1,126 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class AlbumArchiveServiceTest {
+
+    private static final String UUID = "3f1b2c4d-0000-4000-8000-000000000000";
+    private static final String OTHER_UUID = "9a8b7c6d-0000-4000-8000-000000000000";
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void entryNameDropsTheUploadPrefix() {
+        assertThat(AlbumArchiveService.entryName(UUID + "_photo.jpg", new HashSet<>())).isEqualTo("photo.jpg");
+        assertThat(AlbumArchiveService.entryName(UUID + "_my_holiday_photo.jpg", new HashSet<>()))
+                .isEqualTo("my_holiday_photo.jpg");
+    }
+
+    @Test
+    void entryNameKeepsNamesWithoutAnUploadPrefix() {
+        assertThat(AlbumArchiveService.entryName("short_photo.jpg", new HashSet<>())).isEqualTo("short_photo.jpg");
+        assertThat(AlbumArchiveService.entryName("photo.jpg", new HashSet<>())).isEqualTo("photo.jpg");
+    }
+
+    @Test
+    void entryNameUsesTheLastPathSegment() {
+        assertThat(AlbumArchiveService.entryName("thumbnails/" + UUID + "_photo.jpg", new HashSet<>()))
+                .isEqualTo("photo.jpg");
+    }
+
+    @Test
+    void duplicateNamesAreNumberedBeforeTheExtension() {
+        Set<String> used = new HashSet<>();
+
+        assertThat(AlbumArchiveService.entryName(UUID + "_photo.jpg", used)).isEqualTo("photo.jpg");
+        assertThat(AlbumArchiveService.entryName(OTHER_UUID + "_photo.jpg", used)).isEqualTo("photo (1).jpg");
+        assertThat(AlbumArchiveService.entryName("photo.jpg", used)).isEqualTo("photo (2).jpg");
+    }
+
+    @Test
+    void duplicateNamesWithoutExtensionAreNumberedAtTheEnd() {
+        Set<String> used = new HashSet<>();
+
+        assertThat(AlbumArchiveService.entryName(UUID + "_README", used)).isEqualTo("README");
+        assertThat(AlbumArchiveService.entryName(OTHER_UUID + "_README", used)).isEqualTo("README (1)");
+        // A leading dot is part of the name, not an extension
+        assertThat(AlbumArchiveService.entryName(UUID + "_.env", used)).isEqualTo(".env");
+        assertThat(AlbumArchiveService.entryName(OTHER_UUID + "_.env", used)).isEqualTo(".env (1)");
+    }
+
+    @Test
+    void numberedNameDoesNotCollideWithAnUploadedOne() {
+        Set<String> used = new HashSet<>();
+
+        assertThat(AlbumArchiveService.entryName(UUID + "_photo (1).jpg", used)).isEqualTo("photo (1).jpg");
+        assertThat(AlbumArchiveService.entryName(UUID + "_photo.jpg", used)).isEqualTo("photo.jpg");
+        assertThat(AlbumArchiveService.entryName(OTHER_UUID + "_photo.jpg", used)).isEqualTo("photo (2).jpg");
+    }
+
+    @Test
+    void archiveHoldsEveryFileUnderItsEntryNameAndSkipsMissingOnes() throws IOException {
+        String first = UUID + "_photo.jpg";
+        String second = OTHER_UUID + "_photo.jpg";
+        String missing = UUID + "_gone.jpg";
+        StorageEngine storageEngine = mock(StorageEngine.class);
+        FileIndexService fileIndexService = mock(FileIndexService.class);
+        // The first file is deduplicated: its bytes live under its blob
+        when(fileIndexService.storageKeys(anyCollection()))
+                .thenReturn(Map.of(first, "blobs/abc", second, second, missing, missing));
+        when(storageEngine.get("blobs/abc", null, null)).thenAnswer(invocation -> object("first"));
+        when(storageEngine.get(second, null, null)).thenAnswer(invocation -> object("second"));
+        when(storageEngine.get(missing, null, null)).thenThrow(new StorageException(404, "Not found"));
+
+        AlbumArchiveService archiveService = new AlbumArchiveService(storageEngine, fileIndexService, executor,
+                new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(archiveService, "prefetch", 2);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        archiveService.writeZip(List.of(first, missing, second), out);
+
+        List<String> entries = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                entries.add(entry.getName());
+                contents.add(new String(zip.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        assertThat(entries).containsExactly("photo.jpg", "photo (1).jpg");
+        assertThat(contents).containsExactly("first", "second");
+    }
+
+    private static StorageObject object(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return new StorageObject(new ByteArrayInputStream(bytes), "image/jpeg", bytes.length, null, "\"etag\"", null);
+    }
+}
@@ -0,0 +1,168 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.s3_File_Hub.model.Blob;
+import com.example.s3_File_Hub.repository.BlobRepository;
+
+class BlobServiceTest {
+
+    private static final String HASH = "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad";
+
+    private BlobRepository blobRepository;
+    private StorageEngine storageEngine;
+    private ObjectCache objectCache;
+    private BlobService blobService;
+
+    @BeforeEach
+    void setUp() {
+        blobRepository = mock(BlobRepository.class);
+        storageEngine = mock(StorageEngine.class);
+        objectCache = mock(ObjectCache.class);
+        blobService = new BlobService(blobRepository, storageEngine, objectCache);
+        // Stands in for the transaction @Transactional would start
+        TransactionSynchronizationManager.initSynchronization();
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.clearSynchronization();
+    }
+
+    @Test
+    void sha256OfTheContent() throws IOException {
+        assertThat(BlobService.sha256(new ByteArrayInputStream("abc".getBytes(StandardCharsets.UTF_8))))
+                .isEqualTo(HASH);
+        assertThat(BlobService.blobKeyFor(HASH)).isEqualTo("blobs/" + HASH);
+    }
+
+    @Test
+    void acquireReturnsTheNewReferenceCount() {
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(1)), Optional.of(blob(2)));
+
+        assertThat(blobService.acquire(HASH, 3)).isEqualTo(1);
+        assertThat(blobService.acquire(HASH, 3)).isEqualTo(2);
+        verify(blobRepository, times(2)).acquire(HASH, 3);
+    }
+
+    @Test
+    void releasedBlobCannotBeAcquired() {
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(0)), Optional.of(blob(-1)), Optional.empty());
+
+        assertThat(blobService.acquire(HASH, 3)).isZero();
+        assertThat(blobService.acquire(HASH, 3)).isZero();
+        // Its deletion finished in between
+        assertThat(blobService.acquire(HASH, 3)).isZero();
+    }
+
+    @Test
+    void releasingAnotherReferenceKeepsTheBlob() {
+        when(blobRepository.decrement(HASH)).thenReturn(1);
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(1)));
+
+        assertThat(blobService.release(HASH)).isFalse();
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void releasingAnUnknownBlobDoesNothing() {
+        when(blobRepository.decrement(HASH)).thenReturn(0);
+
+        assertThat(blobService.release(HASH)).isFalse();
+        verify(blobRepository, never()).findById(anyString());
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void releasingAnAlreadyReleasedBlobDoesNotCountItTwice() {
+        when(blobRepository.decrement(HASH)).thenReturn(1);
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(-1)));
+
+        assertThat(blobService.release(HASH)).isFalse();
+        assertThat(TransactionSynchronizationManager.getSynchronizations()).isEmpty();
+    }
+
+    @Test
+    void lastReleaseDeletesTheObjectAfterCommit() {
+        when(blobRepository.decrement(HASH)).thenReturn(1);
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(0)));
+
+        assertThat(blobService.release(HASH)).isTrue();
+        // Nothing reaches storage while the transaction holds the row
+        verifyNoInteractions(storageEngine);
+        verify(blobRepository, never()).deleteReleased(anyString());
+
+        commit();
+
+        // The row goes last, so a failed delete leaves it for reconciliation
+        InOrder order = inOrder(storageEngine, objectCache, blobRepository);
+        order.verify(storageEngine).delete("blobs/" + HASH);
+        order.verify(objectCache).invalidate("blobs/" + HASH);
+        order.verify(blobRepository).deleteReleased(HASH);
+    }
+
+    @Test
+    void failedDeleteAfterCommitLeavesTheRowForReconciliation() {
+        when(blobRepository.decrement(HASH)).thenReturn(1);
+        when(blobRepository.findById(HASH)).thenReturn(Optional.of(blob(0)));
+        doThrow(new RuntimeException("S3 unavailable")).when(storageEngine).delete("blobs/" + HASH);
+
+        assertThat(blobService.release(HASH)).isTrue();
+        commit();
+
+        verify(blobRepository, never()).deleteReleased(anyString());
+    }
+
+    @Test
+    void reconcileDeletesReleasedBlobsAndCarriesOnAfterAFailure() {
+        String other = "e3b0c44298fc1c149afbf4c8996fb92427ae41e4649b934ca495991b7852b855";
+        when(blobRepository.findByRefCountLessThanEqual(0)).thenReturn(List.of(blob(0), blob(other, 0)));
+        doThrow(new RuntimeException("S3 unavailable")).when(storageEngine).delete("blobs/" + HASH);
+
+        blobService.reconcile();
+
+        verify(blobRepository).recountReferences(any());
+        verify(blobRepository, never()).deleteReleased(HASH);
+        verify(storageEngine).delete("blobs/" + other);
+        verify(blobRepository).deleteReleased(other);
+    }
+
+    private static void commit() {
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+    }
+
+    private static Blob blob(int refCount) {
+        return blob(HASH, refCount);
+    }
+
+    private static Blob blob(String hash, int refCount) {
+        Blob blob = new Blob();
+        ReflectionTestUtils.setField(blob, "hash", hash);
+        blob.setRefCount(refCount);
+        return blob;
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+
+class ByteRangesTest {
+
+    private static final String ETAG = "\"9b2cf535f27731c974343645a3985328\"";
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30.250Z");
+
+    @ParameterizedTest
+    @CsvSource({
+            "bytes=0-99, 0, 99",
+            "bytes=500-, 500, 999",
+            "bytes=999-999, 999, 999",
+            "bytes=0-5000, 0, 999",
+            "bytes=-100, 900, 999",
+            "bytes=-5000, 0, 999"
+    })
+    void boundsOfASingleRange(String range, long first, long last) {
+        assertThat(ByteRanges.bounds("key", range, 1000)).containsExactly(first, last);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes=5-2", "bytes=-", "bytes=0-1,5-6", "items=0-1", "bytes=a-b", ""})
+    void ignoresRangesItCannotServe(String range) {
+        assertThat(ByteRanges.bounds("key", range, 1000)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"bytes=1000-", "bytes=1000-2000", "bytes=-0"})
+    void rejectsRangesBeyondTheEnd(String range) {
+        assertThatThrownBy(() -> ByteRanges.bounds("key", range, 1000))
+                .isInstanceOfSatisfying(StorageException.class, e -> assertThat(e.getStatusCode()).isEqualTo(416));
+    }
+
+    @Test
+    void emptyObjectSatisfiesNoRange() {
+        assertThatThrownBy(() -> ByteRanges.bounds("key", "bytes=0-", 0))
+                .isInstanceOfSatisfying(StorageException.class, e -> assertThat(e.getStatusCode()).isEqualTo(416));
+    }
+
+    @Test
+    void contentRangeHeader() {
+        assertThat(ByteRanges.contentRange(new long[]{0, 99}, 1000)).isEqualTo("bytes 0-99/1000");
+        assertThat(ByteRanges.contentRange(new long[]{900, 999}, 1000)).isEqualTo("bytes 900-999/1000");
+    }
+
+    @Test
+    void withoutIfRangeTheRangeApplies() {
+        assertThat(ByteRanges.ifRangeMatches(null, ETAG, LAST_MODIFIED)).isTrue();
+    }
+
+    @Test
+    void strongETagMustMatch() {
+        assertThat(ByteRanges.ifRangeMatches(ETAG, ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(ByteRanges.ifRangeMatches("\"other\"", ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    void weakETagNeverMatches() {
+        assertThat(ByteRanges.ifRangeMatches("W/" + ETAG, ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    void dateMatchesWhenTheObjectIsNotNewer() {
+        // HTTP dates have whole seconds; the object's milliseconds don't make it newer
+        assertThat(ByteRanges.ifRangeMatches(httpDate(LAST_MODIFIED), ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(ByteRanges.ifRangeMatches(httpDate(LAST_MODIFIED.plusSeconds(60)), ETAG, LAST_MODIFIED)).isTrue();
+        assertThat(ByteRanges.ifRangeMatches(httpDate(LAST_MODIFIED.minusSeconds(1)), ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    @Test
+    void unparseableIfRangeNeverMatches() {
+        assertThat(ByteRanges.ifRangeMatches("yesterday", ETAG, LAST_MODIFIED)).isFalse();
+    }
+
+    private static String httpDate(Instant instant) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.ofInstant(instant, ZoneOffset.UTC));
+    }
+}
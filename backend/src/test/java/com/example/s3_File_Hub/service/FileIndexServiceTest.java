@@ -0,0 +1,211 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Pageable;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.example.s3_File_Hub.dto.FileEntry;
+import com.example.s3_File_Hub.dto.FilePage;
+import com.example.s3_File_Hub.model.FileMetadata;
+import com.example.s3_File_Hub.repository.FileMetadataRepository;
+
+class FileIndexServiceTest {
+
+    private static final LocalDateTime UPLOADED_AT = LocalDateTime.of(2024, 5, 1, 10, 15, 30, 123_456_000);
+
+    private FileMetadataRepository fileMetadataRepository;
+    private StorageEngine storageEngine;
+    private PlatformTransactionManager transactionManager;
+    private FileIndexService fileIndexService;
+
+    @BeforeEach
+    void setUp() {
+        fileMetadataRepository = mock(FileMetadataRepository.class);
+        storageEngine = mock(StorageEngine.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        fileIndexService = new FileIndexService(fileMetadataRepository, storageEngine, transactionManager);
+    }
+
+    @Test
+    void firstPageStartsAtTheNewestFile() {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(rows(3));
+
+        FilePage page = fileIndexService.page(null, null, true, null, 3);
+
+        ArgumentCaptor<Pageable> limit = ArgumentCaptor.forClass(Pageable.class);
+        verify(fileMetadataRepository).findPageNewestFirst(eq("%"), eq("%"),
+                eq(LocalDateTime.of(9999, 12, 31, 0, 0)), eq(Long.MAX_VALUE), limit.capture());
+        // One row more than the page, to know whether another one follows
+        assertThat(limit.getValue().getPageSize()).isEqualTo(4);
+        assertThat(page.getItems()).extracting(FileEntry::getKey).containsExactly("file-1", "file-2", "file-3");
+    }
+
+    @Test
+    void firstPageOldestFirstStartsAtTheOldestFile() {
+        when(fileMetadataRepository.findPageOldestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(rows(1));
+
+        fileIndexService.page(null, null, false, null, 10);
+
+        verify(fileMetadataRepository).findPageOldestFirst(eq("%"), eq("%"), eq(LocalDateTime.of(1, 1, 1, 0, 0)),
+                eq(Long.MIN_VALUE), any());
+        verify(fileMetadataRepository, never()).findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any());
+    }
+
+    @Test
+    void fullPageWithMoreRowsHasACursorAfterItsLastRow() {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(rows(3));
+
+        FilePage page = fileIndexService.page(null, null, true, null, 2);
+
+        assertThat(page.getItems()).extracting(FileEntry::getKey).containsExactly("file-1", "file-2");
+        assertThat(page.getNextCursor()).matches("[A-Za-z0-9_-]+");
+        assertThat(new String(Base64.getUrlDecoder().decode(page.getNextCursor()), StandardCharsets.UTF_8))
+                .isEqualTo(UPLOADED_AT.minusMinutes(2) + "|2");
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 1, 2})
+    void lastPageHasNoCursor(int rows) {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(rows(rows));
+
+        FilePage page = fileIndexService.page(null, null, true, null, 2);
+
+        assertThat(page.getItems()).hasSize(rows);
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    @Test
+    void cursorContinuesAfterTheLastRowOfThePreviousPage() {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(rows(3));
+        String cursor = fileIndexService.page(null, null, true, null, 2).getNextCursor();
+
+        fileIndexService.page(null, null, true, cursor, 2);
+
+        verify(fileMetadataRepository).findPageNewestFirst(eq("%"), eq("%"), eq(UPLOADED_AT.minusMinutes(2)), eq(2L),
+                any());
+    }
+
+    @Test
+    void blankCursorStartsFromTheBeginning() {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(List.of());
+
+        fileIndexService.page(null, null, true, " ", 2);
+
+        verify(fileMetadataRepository).findPageNewestFirst(anyString(), anyString(),
+                eq(LocalDateTime.of(9999, 12, 31, 0, 0)), eq(Long.MAX_VALUE), any());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"not base64!", "Z2FyYmFnZQ", "MjAyNC0wNS0wMVQxMDoxNTozMHxhYmM", "MjAyNC0wNS0wMVQxMDoxNTozMA"})
+    void rejectsInvalidCursors(String cursor) {
+        // Besides undecodable input: "garbage", "2024-05-01T10:15:30|abc" and "2024-05-01T10:15:30"
+        assertThatThrownBy(() -> fileIndexService.page(null, null, true, cursor, 2))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Invalid cursor");
+    }
+
+    @Test
+    void filtersEscapeLikeWildcards() {
+        when(fileMetadataRepository.findPageNewestFirst(anyString(), anyString(), any(), anyLong(), any()))
+                .thenReturn(List.of());
+
+        fileIndexService.page("50%_off!", "image/", true, null, 2);
+
+        verify(fileMetadataRepository).findPageNewestFirst(eq("50!%!_off!!%"), eq("image/%"), any(), anyLong(), any());
+    }
+
+    @Test
+    void reconcileCorrectsRowsWithoutAnETag() {
+        FileMetadata indexed = new FileMetadata("photo.jpg", 100, "image/jpeg", "owner@example.com", null);
+        ReflectionTestUtils.setField(indexed, "id", 1L);
+        listing(new StorageEngine.ObjectInfo("photo.jpg", 100, null, "\"etag\"", Instant.EPOCH));
+        when(fileMetadataRepository.findAll()).thenReturn(List.of(indexed));
+        FileMetadata current = new FileMetadata("photo.jpg", 100, "image/jpeg", "owner@example.com", null);
+        ReflectionTestUtils.setField(current, "id", 1L);
+        when(fileMetadataRepository.findAllById(List.of(1L))).thenReturn(List.of(current));
+
+        fileIndexService.reconcile();
+
+        assertThat(current.getETag()).isEqualTo("\"etag\"");
+        assertThat(current.getOwner()).isEqualTo("owner@example.com");
+    }
+
+    @Test
+    void reconcileAppliesChangesInBoundedTransactions() {
+        int count = FileIndexService.RECONCILE_BATCH_SIZE + 1;
+        List<FileMetadata> indexed = IntStream.range(0, count)
+                .mapToObj(i -> {
+                    FileMetadata metadata = new FileMetadata("gone-" + i, 100, "image/jpeg", null, "\"etag\"");
+                    metadata.setUploadedAt(UPLOADED_AT);
+                    ReflectionTestUtils.setField(metadata, "id", (long) i);
+                    return metadata;
+                })
+                .toList();
+        listing();
+        when(fileMetadataRepository.findAll()).thenReturn(indexed);
+
+        fileIndexService.reconcile();
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Long>> removed = ArgumentCaptor.forClass(List.class);
+        verify(fileMetadataRepository, times(2)).deleteAllByIdInBatch(removed.capture());
+        assertThat(removed.getAllValues()).extracting(List::size)
+                .containsExactly(FileIndexService.RECONCILE_BATCH_SIZE, 1);
+        verify(transactionManager, times(2)).getTransaction(any());
+    }
+
+    private void listing(StorageEngine.ObjectInfo... objects) {
+        doAnswer(invocation -> {
+            Consumer<StorageEngine.ObjectInfo> consumer = invocation.getArgument(1);
+            for (StorageEngine.ObjectInfo object : objects) {
+                consumer.accept(object);
+            }
+            return null;
+        }).when(storageEngine).list(isNull(), any());
+    }
+
+    // Newest first: file-1 is the newest, each following one a minute older
+    private static List<FileMetadata> rows(int count) {
+        return IntStream.rangeClosed(1, count)
+                .mapToObj(i -> {
+                    FileMetadata metadata = new FileMetadata("file-" + i, 100, "image/jpeg", "owner@example.com", null);
+                    metadata.setUploadedAt(UPLOADED_AT.minusMinutes(i));
+                    ReflectionTestUtils.setField(metadata, "id", (long) i);
+                    return metadata;
+                })
+                .toList();
+    }
+}
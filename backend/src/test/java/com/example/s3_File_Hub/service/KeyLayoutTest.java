@@ -0,0 +1,119 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class KeyLayoutTest {
+
+    private static final List<String> KEYS = List.of(
+            "3f1b2c4d-0000-4000-8000-000000000000_photo.jpg",
+            "thumbnails/3f1b2c4d-0000-4000-8000-000000000000_photo.jpg",
+            "blobs/9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+            "a0/looks-hashed.txt",
+            "ünïcødé 文件.png",
+            "x");
+
+    @Test
+    void flatLayoutStoresKeysAsIs() {
+        KeyLayout layout = new KeyLayout("flat", 2, true);
+
+        assertThat(layout.isHashed()).isFalse();
+        assertThat(layout.isLegacyFallback()).isFalse();
+        for (String key : KEYS) {
+            assertThat(layout.storageKey(key)).isEqualTo(key);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 4})
+    void hashedStorageKeyMapsBackToItsKey(int prefixLength) {
+        KeyLayout layout = new KeyLayout("hashed", prefixLength, true);
+
+        for (String key : KEYS) {
+            String storageKey = layout.storageKey(key);
+            assertThat(storageKey).matches("[0-9a-f]{" + prefixLength + "}/.+").endsWith("/" + key);
+            assertThat(layout.keyOf(storageKey)).isEqualTo(key);
+        }
+    }
+
+    @Test
+    void hashedStorageKeyIsStable() {
+        KeyLayout layout = new KeyLayout("hashed", 2, true);
+        KeyLayout other = new KeyLayout("hashed", 2, false);
+
+        assertThat(layout.storageKey("photo.jpg"))
+                .isEqualTo(layout.storageKey("photo.jpg"))
+                .isEqualTo(other.storageKey("photo.jpg"));
+    }
+
+    @Test
+    void flatNamesAreNotTakenForHashedOnes() {
+        KeyLayout layout = new KeyLayout("hashed", 2, true);
+
+        assertThat(layout.keyOf("photo.jpg")).isNull();
+        assertThat(layout.keyOf("thumbnails/photo.jpg")).isNull();
+        assertThat(layout.keyOf("ab")).isNull();
+        assertThat(layout.keyOf("ab/")).isNull();
+    }
+
+    @Test
+    void nameUnderTheWrongPrefixIsNotHashed() {
+        KeyLayout layout = new KeyLayout("hashed", 2, true);
+        String storageKey = layout.storageKey("photo.jpg");
+        String otherPrefix = storageKey.startsWith("00/") ? "01/" : "00/";
+
+        assertThat(layout.keyOf(otherPrefix + "photo.jpg")).isNull();
+    }
+
+    @Test
+    void keyOfFollowsThePrefixLength() {
+        KeyLayout two = new KeyLayout("hashed", 2, true);
+        KeyLayout three = new KeyLayout("hashed", 3, true);
+
+        assertThat(three.keyOf(two.storageKey("photo.jpg"))).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3})
+    void prefixesCoverEveryStorageKey(int prefixLength) {
+        KeyLayout layout = new KeyLayout("hashed", prefixLength, true);
+
+        String[] prefixes = layout.prefixes();
+        assertThat(prefixes).hasSize(1 << (4 * prefixLength)).doesNotHaveDuplicates();
+        assertThat(prefixes[0]).isEqualTo("0".repeat(prefixLength) + "/");
+        assertThat(prefixes[prefixes.length - 1]).isEqualTo("f".repeat(prefixLength) + "/");
+
+        Set<String> all = Set.of(prefixes);
+        for (String key : KEYS) {
+            String storageKey = layout.storageKey(key);
+            assertThat(all).contains(storageKey.substring(0, prefixLength + 1));
+        }
+    }
+
+    @Test
+    void legacyFallbackOnlyAppliesToTheHashedLayout() {
+        assertThat(new KeyLayout("hashed", 2, true).isLegacyFallback()).isTrue();
+        assertThat(new KeyLayout("hashed", 2, false).isLegacyFallback()).isFalse();
+        assertThat(new KeyLayout("flat", 2, true).isLegacyFallback()).isFalse();
+    }
+
+    @Test
+    void rejectsUnknownLayout() {
+        assertThatThrownBy(() -> new KeyLayout("sharded", 2, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 5})
+    void rejectsPrefixLengthOutOfRange(int prefixLength) {
+        assertThatThrownBy(() -> new KeyLayout("hashed", prefixLength, true))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class ObjectCacheTest {
+
+    private static final String KEY = "3f1b2c4d-0000-4000-8000-000000000000_photo.jpg";
+    private static final Instant LAST_MODIFIED = Instant.parse("2024-05-01T10:15:30Z");
+
+    // Heap tier up to 1 KB, disk tier up to 1 MB
+    private static final byte[] SMALL = content(512);
+    private static final byte[] LARGE = content(8 * 1024);
+    private static final byte[] TOO_LARGE = content(2 * 1024 * 1024);
+
+    @TempDir
+    Path directory;
+
+    private StorageEngine storageEngine;
+    private SimpleMeterRegistry meterRegistry;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private ObjectCache cache;
+    // Every object the storage engine handed out, in order
+    private final List<StorageObject> fetched = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageEngine = mock(StorageEngine.class);
+        meterRegistry = new SimpleMeterRegistry();
+        cache = cache(300, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void missIsStreamedAndThenServedFromTheHeap() throws IOException {
+        stored(SMALL);
+
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(SMALL);
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(SMALL);
+
+        verify(storageEngine, times(1)).get(KEY, null, null);
+        assertThat(requests("hit", "heap")).isEqualTo(1);
+        assertThat(requests("miss", "none")).isEqualTo(1);
+    }
+
+    @Test
+    void largerObjectGoesToTheDiskTier() throws IOException {
+        stored(LARGE);
+
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(LARGE);
+        assertThat(cacheFiles()).hasSize(1);
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(LARGE);
+
+        verify(storageEngine, times(1)).get(KEY, null, null);
+        assertThat(requests("hit", "disk")).isEqualTo(1);
+    }
+
+    @Test
+    void concurrentMissIsServedFromTheFill() throws Exception {
+        stored(SMALL);
+
+        StorageObject first = cache.open(KEY, null, null);
+        Future<byte[]> second = executor.submit(() -> readAll(cache.open(KEY, null, null)));
+        awaitMisses(2);
+        assertThat(readAll(first)).isEqualTo(SMALL);
+
+        assertThat(second.get()).isEqualTo(SMALL);
+        verify(storageEngine, times(1)).get(KEY, null, null);
+    }
+
+    @Test
+    void concurrentMissReadsFromStorageWhenTheFillIsAbandoned() throws Exception {
+        stored(SMALL);
+
+        StorageObject first = cache.open(KEY, null, null);
+        Future<byte[]> second = executor.submit(() -> readAll(cache.open(KEY, null, null)));
+        awaitMisses(2);
+        first.abort();
+
+        assertThat(second.get()).isEqualTo(SMALL);
+        verify(storageEngine, times(2)).get(KEY, null, null);
+    }
+
+    @Test
+    void concurrentMissWaitsNoLongerThanTheFillWait() throws IOException {
+        cache = cache(300, 0);
+        stored(SMALL);
+
+        StorageObject first = cache.open(KEY, null, null);
+        StorageObject second = cache.open(KEY, null, null);
+
+        // The second miss gets the plain storage stream while the first one fills the cache
+        assertThat(first).isNotSameAs(fetched.get(0));
+        assertThat(second).isSameAs(fetched.get(1));
+        // and the next one doesn't wait for the first fill anymore, but starts its own
+        StorageObject third = cache.open(KEY, null, null);
+        assertThat(third).isNotSameAs(fetched.get(2));
+
+        assertThat(readAll(second)).isEqualTo(SMALL);
+        assertThat(readAll(first)).isEqualTo(SMALL);
+        assertThat(readAll(third)).isEqualTo(SMALL);
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(SMALL);
+        verify(storageEngine, times(3)).get(KEY, null, null);
+    }
+
+    @Test
+    void asyncMissWaitsForTheFillWithoutBlocking() throws IOException {
+        stored(SMALL);
+
+        StorageObject first = cache.open(KEY, null, null);
+        CompletableFuture<StorageObject> second = cache.openAsync(KEY, null, null);
+        assertThat(second).isNotDone();
+        readAll(first);
+
+        assertThat(readAll(second.join())).isEqualTo(SMALL);
+        verify(storageEngine, never()).getAsync(anyString(), any(), any());
+    }
+
+    @Test
+    void invalidateLetsWaitingMissesReadTheNewContent() throws IOException {
+        stored(SMALL);
+        when(storageEngine.getAsync(KEY, null, null))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(object(LARGE)));
+
+        StorageObject first = cache.open(KEY, null, null);
+        CompletableFuture<StorageObject> second = cache.openAsync(KEY, null, null);
+        cache.invalidate(KEY);
+
+        assertThat(readAll(second.join())).isEqualTo(LARGE);
+        readAll(first);
+    }
+
+    @Test
+    void incompleteReadLeavesTheCacheEmpty() throws IOException {
+        stored(SMALL);
+
+        try (StorageObject object = cache.open(KEY, null, null)) {
+            object.readNBytes(100);
+        }
+        StorageObject aborted = cache.open(KEY, null, null);
+        aborted.readNBytes(100);
+        aborted.abort();
+
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(SMALL);
+        assertThat(readAll(cache.open(KEY, null, null))).isEqualTo(SMALL);
+        verify(storageEngine, times(3)).get(KEY, null, null);
+    }
+
+    @Test
+    void incompleteReadRemovesItsCacheFile() throws IOException {
+        stored(LARGE);
+
+        try (StorageObject object = cache.open(KEY, null, null)) {
+            object.readNBytes(100);
+        }
+
+        assertThat(cacheFiles()).isEmpty();
+    }
+
+    @Test
+    void invalidateDropsTheCachedObject() throws IOException {
+        stored(SMALL);
+        readAll(cache.open(KEY, null, null));
+
+        cache.invalidate(KEY);
+
+        readAll(cache.open(KEY, null, null));
+        verify(storageEngine, times(2)).get(KEY, null, null);
+    }
+
+    @Test
+    void invalidateDuringAFillKeepsItOutOfTheCache() throws IOException {
+        stored(SMALL);
+
+        StorageObject filling = cache.open(KEY, null, null);
+        filling.readNBytes(100);
+        cache.invalidate(KEY);
+        assertThat(readAll(filling)).hasSize(SMALL.length - 100);
+
+        readAll(cache.open(KEY, null, null));
+        verify(storageEngine, times(2)).get(KEY, null, null);
+    }
+
+    @Test
+    void rangeOfAnUncachedObjectGoesToStorage() throws IOException {
+        stored(SMALL);
+        when(storageEngine.get(KEY, "bytes=0-9", null))
+                .thenAnswer(invocation -> new StorageObject(new ByteArrayInputStream(Arrays.copyOf(SMALL, 10)),
+                        "image/jpeg", 10, "bytes 0-9/" + SMALL.length, "\"etag\"", LAST_MODIFIED));
+
+        assertThat(readAll(cache.open(KEY, "bytes=0-9", null))).isEqualTo(Arrays.copyOf(SMALL, 10));
+
+        // Nothing was cached by the ranged read
+        readAll(cache.open(KEY, null, null));
+        verify(storageEngine, times(1)).get(KEY, null, null);
+    }
+
+    @Test
+    void rangeOfACachedObjectIsServedFromTheCache() throws IOException {
+        stored(SMALL);
+        readAll(cache.open(KEY, null, null));
+
+        StorageObject range = cache.open(KEY, "bytes=10-19", null);
+
+        assertThat(range.getContentRange()).isEqualTo("bytes 10-19/" + SMALL.length);
+        assertThat(readAll(range)).isEqualTo(Arrays.copyOfRange(SMALL, 10, 20));
+        verify(storageEngine, never()).get(eq(KEY), anyString(), any());
+    }
+
+    @Test
+    void objectTooLargeToCacheIsOnlyStreamed() throws IOException {
+        stored(TOO_LARGE);
+
+        readAll(cache.open(KEY, null, null));
+        StorageObject again = cache.open(KEY, null, null);
+
+        assertThat(again).isSameAs(fetched.get(1));
+        assertThat(cacheFiles()).isEmpty();
+    }
+
+    @Test
+    void staleEntryIsCheckedAgainstTheETag() throws IOException {
+        cache = cache(0, 10);
+        stored(SMALL);
+        readAll(cache.open(KEY, null, null));
+
+        when(storageEngine.stat(KEY)).thenReturn(new StorageEngine.ObjectInfo(KEY, SMALL.length, "image/jpeg",
+                "\"etag\"", LAST_MODIFIED));
+        readAll(cache.open(KEY, null, null));
+        verify(storageEngine, times(1)).get(KEY, null, null);
+
+        when(storageEngine.stat(KEY)).thenReturn(new StorageEngine.ObjectInfo(KEY, SMALL.length, "image/jpeg",
+                "\"changed\"", LAST_MODIFIED));
+        readAll(cache.open(KEY, null, null));
+        verify(storageEngine, times(2)).get(KEY, null, null);
+    }
+
+    @Test
+    void asyncRevalidationDoesNotBlock() throws IOException {
+        cache = cache(0, 10);
+        stored(SMALL);
+        readAll(cache.open(KEY, null, null));
+        CompletableFuture<StorageEngine.ObjectInfo> stat = new CompletableFuture<>();
+        when(storageEngine.statAsync(KEY)).thenReturn(stat);
+
+        CompletableFuture<StorageObject> object = cache.openAsync(KEY, null, null);
+        assertThat(object).isNotDone();
+        stat.complete(new StorageEngine.ObjectInfo(KEY, SMALL.length, "image/jpeg", "\"etag\"", LAST_MODIFIED));
+
+        assertThat(readAll(object.join())).isEqualTo(SMALL);
+        verify(storageEngine, never()).stat(anyString());
+        verify(storageEngine, times(1)).get(KEY, null, null);
+    }
+
+    @Test
+    void asyncMissReadsAsynchronouslyAndFillsTheCache() throws IOException {
+        when(storageEngine.getAsync(KEY, null, null))
+                .thenAnswer(invocation -> CompletableFuture.completedFuture(object(SMALL)));
+
+        assertThat(readAll(cache.openAsync(KEY, null, null).join())).isEqualTo(SMALL);
+        assertThat(readAll(cache.openAsync(KEY, null, null).join())).isEqualTo(SMALL);
+
+        verify(storageEngine, times(1)).getAsync(KEY, null, null);
+        verify(storageEngine, never()).get(anyString(), any(), any());
+    }
+
+    @Test
+    void statOfACachedObjectDoesNotReachStorage() throws IOException {
+        stored(SMALL);
+        readAll(cache.open(KEY, null, null));
+
+        StorageEngine.ObjectInfo info = cache.stat(KEY);
+
+        assertThat(info.size()).isEqualTo(SMALL.length);
+        assertThat(info.eTag()).isEqualTo("\"etag\"");
+        verify(storageEngine, never()).stat(anyString());
+    }
+
+    private ObjectCache cache(long revalidateAfterSeconds, long fillWaitSeconds) throws IOException {
+        return new ObjectCache(storageEngine, meterRegistry, true, 16, 1, directory.toString(), 16, 1,
+                revalidateAfterSeconds, fillWaitSeconds);
+    }
+
+    // Until the misses have been counted, which happens before one waits for a fill
+    private void awaitMisses(int count) throws InterruptedException {
+        while (requests("miss", "none") < count) {
+            Thread.sleep(1);
+        }
+    }
+
+    private void stored(byte[] content) {
+        when(storageEngine.get(eq(KEY), isNull(), isNull())).thenAnswer(invocation -> {
+            StorageObject object = object(content);
+            fetched.add(object);
+            return object;
+        });
+    }
+
+    private static StorageObject object(byte[] content) {
+        return new StorageObject(new ByteArrayInputStream(content), "image/jpeg", content.length, null, "\"etag\"",
+                LAST_MODIFIED);
+    }
+
+    private static byte[] readAll(StorageObject object) throws IOException {
+        try (object) {
+            return object.readAllBytes();
+        }
+    }
+
+    private double requests(String result, String tier) {
+        return meterRegistry.get("object.cache.requests").tag("result", result).tag("tier", tier).counter().count();
+    }
+
+    private List<Path> cacheFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.toList();
+        }
+    }
+
+    private static byte[] content(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        return content;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import org.junit.jupiter.api.Test;
+
+import com.example.s3_File_Hub.exceptions.StorageException;
+import com.example.s3_File_Hub.repository.KeyMigrationCheckpointRepository;
+import com.example.s3_File_Hub.repository.KeyMigrationFailureRepository;
+
+class PartitionedStorageEngineTest {
+
+    private final S3StorageEngine delegate = mock(S3StorageEngine.class);
+
+    @Test
+    void prefixListingVisitsEveryPartition() {
+        engine(new KeyLayout("hashed", 2, false), 256).list("thumbnails/", object -> {});
+
+        verify(delegate, times(256)).list(anyString(), any());
+        verify(delegate).list(eq("3f/thumbnails/"), any());
+    }
+
+    @Test
+    void prefixListingOverMorePartitionsIsRefused() {
+        PartitionedStorageEngine engine = engine(new KeyLayout("hashed", 3, false), 256);
+
+        assertThatThrownBy(() -> engine.list("thumbnails/", object -> {}))
+                .isInstanceOf(StorageException.class)
+                .hasMessageContaining("4096 requests")
+                .satisfies(e -> assertThat(((StorageException) e).getStatusCode()).isEqualTo(501));
+        verify(delegate, never()).list(anyString(), any());
+    }
+
+    @Test
+    void listingEverythingIsASinglePass() {
+        engine(new KeyLayout("hashed", 3, false), 256).list(null, object -> {});
+
+        verify(delegate).list(any(), any());
+    }
+
+    private PartitionedStorageEngine engine(KeyLayout keyLayout, int maxListedPartitions) {
+        return new PartitionedStorageEngine(delegate, keyLayout, mock(KeyMigrationCheckpointRepository.class),
+                mock(KeyMigrationFailureRepository.class), maxListedPartitions);
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.example.s3_File_Hub.model.StorageUsage;
+import com.example.s3_File_Hub.repository.BlobRepository;
+import com.example.s3_File_Hub.repository.FileMetadataRepository;
+import com.example.s3_File_Hub.repository.StorageUsageRepository;
+
+class QuotaServiceTest {
+
+    private static final String OWNER = "owner@example.com";
+    private static final long MB = 1024 * 1024;
+
+    private StorageUsageRepository storageUsageRepository;
+    private FileMetadataRepository fileMetadataRepository;
+    private BlobRepository blobRepository;
+    private QuotaService quotaService;
+
+    @BeforeEach
+    void setUp() {
+        storageUsageRepository = mock(StorageUsageRepository.class);
+        fileMetadataRepository = mock(FileMetadataRepository.class);
+        blobRepository = mock(BlobRepository.class);
+        quotaService = new QuotaService(storageUsageRepository, fileMetadataRepository, blobRepository);
+        ReflectionTestUtils.setField(quotaService, "globalLimitMB", 100L);
+        ReflectionTestUtils.setField(quotaService, "userLimitMB", 10L);
+        when(storageUsageRepository.tryAdd(anyString(), anyLong(), anyLong())).thenReturn(1);
+    }
+
+    @Test
+    void reserveChargesTheOwnerAndTheBucket() {
+        quotaService.reserve(OWNER, 500);
+
+        verify(storageUsageRepository).tryAdd(StorageUsage.GLOBAL, 500, 100 * MB);
+        verify(storageUsageRepository).tryAdd(OWNER, 500, 10 * MB);
+    }
+
+    @Test
+    void duplicateOnlyChargesItsOwner() {
+        quotaService.reserve(OWNER, 500, 0);
+
+        verify(storageUsageRepository, never()).tryAdd(eq(StorageUsage.GLOBAL), anyLong(), anyLong());
+        verify(storageUsageRepository).tryAdd(OWNER, 500, 10 * MB);
+    }
+
+    @Test
+    void reserveWithoutOwnerOnlyChargesTheBucket() {
+        quotaService.reserve(null, 500);
+
+        verify(storageUsageRepository).tryAdd(StorageUsage.GLOBAL, 500, 100 * MB);
+        verify(storageUsageRepository, never()).tryAdd(eq(OWNER), anyLong(), anyLong());
+    }
+
+    @Test
+    void fullBucketRejectsTheUploadBeforeChargingTheOwner() {
+        when(storageUsageRepository.tryAdd(eq(StorageUsage.GLOBAL), anyLong(), anyLong())).thenReturn(0);
+
+        assertThatThrownBy(() -> quotaService.reserve(OWNER, 500))
+                .hasMessageContaining("100MB max");
+        verify(storageUsageRepository, never()).tryAdd(eq(OWNER), anyLong(), anyLong());
+    }
+
+    @Test
+    void fullUserQuotaRejectsTheUpload() {
+        when(storageUsageRepository.tryAdd(eq(OWNER), anyLong(), anyLong())).thenReturn(0);
+
+        assertThatThrownBy(() -> quotaService.reserve(OWNER, 500))
+                .hasMessageContaining("10MB max per user");
+    }
+
+    @Test
+    void negativeUserLimitMeansUnlimited() {
+        ReflectionTestUtils.setField(quotaService, "userLimitMB", -1L);
+
+        quotaService.reserve(OWNER, 500);
+
+        verify(storageUsageRepository).tryAdd(OWNER, 500, Long.MAX_VALUE);
+    }
+
+    @Test
+    void releaseGivesBackWhatReserveTook() {
+        quotaService.release(OWNER, 500);
+
+        verify(storageUsageRepository).add(StorageUsage.GLOBAL, -500);
+        verify(storageUsageRepository).add(OWNER, -500);
+    }
+
+    @Test
+    void releasingADuplicateKeepsTheSharedBytesInTheBucket() {
+        quotaService.release(OWNER, 500, 0);
+
+        verify(storageUsageRepository, never()).add(eq(StorageUsage.GLOBAL), anyLong());
+        verify(storageUsageRepository).add(OWNER, -500);
+    }
+
+    @Test
+    void refundWithoutOwnerOnlyTouchesTheBucket() {
+        quotaService.release(null, 0, 500);
+
+        verify(storageUsageRepository).add(StorageUsage.GLOBAL, -500);
+        verify(storageUsageRepository, never()).add(eq(OWNER), anyLong());
+    }
+
+    @Test
+    void checkAvailableCountsWhatIsAlreadyUsed() {
+        when(storageUsageRepository.findById(StorageUsage.GLOBAL))
+                .thenReturn(Optional.of(new StorageUsage(StorageUsage.GLOBAL, 99 * MB)));
+        when(storageUsageRepository.findById(OWNER)).thenReturn(Optional.empty());
+
+        quotaService.checkAvailable(OWNER, MB);
+        assertThatThrownBy(() -> quotaService.checkAvailable(OWNER, MB + 1))
+                .hasMessageContaining("100MB max");
+    }
+
+    @Test
+    void reconcileCountsSharedBlobsOnceForTheBucket() {
+        when(fileMetadataRepository.sumSizeByOwner()).thenReturn(List.of(
+                new Object[]{OWNER, 700L},
+                new Object[]{"other@example.com", 300L}));
+        when(fileMetadataRepository.sumUnsharedSize()).thenReturn(200L);
+        when(blobRepository.sumSize()).thenReturn(400L);
+        when(storageUsageRepository.findAll()).thenReturn(List.of(
+                new StorageUsage(OWNER, 1),
+                new StorageUsage(StorageUsage.GLOBAL, 2),
+                new StorageUsage("gone@example.com", 50)));
+
+        quotaService.reconcile();
+
+        verify(storageUsageRepository).reset(eq(OWNER), eq(700L), any());
+        verify(storageUsageRepository).reset(eq(StorageUsage.GLOBAL), eq(600L), any());
+        verify(storageUsageRepository).reset(eq("gone@example.com"), eq(0L), any());
+        verify(storageUsageRepository).ensureExists("other@example.com");
+        verify(storageUsageRepository).reset(eq("other@example.com"), eq(300L), any());
+        verify(storageUsageRepository, never()).ensureExists(OWNER);
+    }
+
+    @Test
+    void reconcileOnlyResetsCountersLeftAloneForTheGracePeriod() {
+        ReflectionTestUtils.setField(quotaService, "reconcileGraceMinutes", 60L);
+        when(fileMetadataRepository.sumSizeByOwner()).thenReturn(List.<Object[]>of());
+        when(storageUsageRepository.findAll()).thenReturn(List.of());
+        LocalDateTime before = LocalDateTime.now();
+
+        quotaService.reconcile();
+
+        ArgumentCaptor<LocalDateTime> changedBefore = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(storageUsageRepository).reset(eq(StorageUsage.GLOBAL), eq(0L), changedBefore.capture());
+        assertThat(changedBefore.getValue()).isBeforeOrEqualTo(before.minusMinutes(60).plusSeconds(1))
+                .isAfterOrEqualTo(before.minusMinutes(60));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.s3_File_Hub.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class S3ServiceTest {
+
+    private static final String OWNER = "owner@example.com";
+    private static final byte[] CONTENT = "same bytes, uploaded twice".getBytes(StandardCharsets.UTF_8);
+    private static final long SIZE = CONTENT.length;
+
+    private StorageEngine storageEngine;
+    private FileIndexService fileIndexService;
+    private BlobService blobService;
+    private QuotaService quotaService;
+    private S3Service s3Service;
+    private MockMultipartFile file;
+    private String hash;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        storageEngine = mock(StorageEngine.class);
+        fileIndexService = mock(FileIndexService.class);
+        blobService = mock(BlobService.class);
+        quotaService = mock(QuotaService.class);
+        s3Service = new S3Service(storageEngine, fileIndexService, blobService, quotaService,
+                mock(ThumbnailService.class), mock(PresignedUrlCache.class), mock(ObjectCache.class),
+                new SimpleMeterRegistry());
+        file = new MockMultipartFile("file", "photo.jpg", "image/jpeg", CONTENT);
+        hash = BlobService.sha256(new ByteArrayInputStream(CONTENT));
+    }
+
+    @Test
+    void firstUploadStoresTheBlobAndChargesTheBucket() throws IOException {
+        when(blobService.acquire(hash, SIZE)).thenReturn(1);
+        when(storageEngine.put(eq("blobs/" + hash), any(InputStream.class), eq(SIZE), eq("image/jpeg")))
+                .thenReturn("\"etag\"");
+
+        String key = s3Service.uploadFile(file, OWNER);
+
+        assertThat(key).endsWith("_photo.jpg");
+        verify(quotaService).reserve(OWNER, SIZE);
+        verify(quotaService, never()).release(any(), anyLong(), anyLong());
+        verify(fileIndexService).record(key, SIZE, "image/jpeg", OWNER, "\"etag\"", hash);
+    }
+
+    @Test
+    void duplicateUploadIsRefundedToTheBucketAndSkipsTheBytes() throws IOException {
+        when(blobService.acquire(hash, SIZE)).thenReturn(2);
+        when(blobService.eTag(hash)).thenReturn("\"etag\"");
+
+        String key = s3Service.uploadFile(file, OWNER);
+
+        // The owner keeps paying for the file, the bucket only counts the blob once
+        verify(quotaService).reserve(OWNER, SIZE);
+        verify(quotaService).release(null, 0, SIZE);
+        verify(storageEngine, never()).put(anyString(), any(), anyLong(), any());
+        verify(fileIndexService).record(key, SIZE, "image/jpeg", OWNER, "\"etag\"", hash);
+    }
+
+    @Test
+    void duplicateWhoseBlobCannotBeReadGivesItsReferenceBack() {
+        when(blobService.acquire(hash, SIZE)).thenReturn(2);
+        when(blobService.eTag(hash)).thenThrow(new RuntimeException("S3 unavailable"));
+        when(blobService.release(hash)).thenReturn(false);
+
+        assertThatThrownBy(() -> s3Service.uploadFile(file, OWNER)).hasMessage("S3 unavailable");
+
+        verify(quotaService).release(null, 0, SIZE);
+        verify(blobService).release(hash);
+        // The bucket was already refunded; only the owner's reservation is left
+        verify(quotaService).release(OWNER, SIZE, 0);
+    }
+
+    @Test
+    void uploadOfABlobBeingDeletedIsStoredUnderItsOwnKey() throws IOException {
+        when(blobService.acquire(hash, SIZE)).thenReturn(0);
+        when(storageEngine.put(anyString(), any(InputStream.class), eq(SIZE), eq("image/jpeg")))
+                .thenReturn("\"etag\"");
+
+        String key = s3Service.uploadFile(file, OWNER);
+
+        verify(storageEngine).put(eq(key), any(InputStream.class), eq(SIZE), eq("image/jpeg"));
+        verify(quotaService, never()).release(any(), anyLong(), anyLong());
+        verify(fileIndexService).record(eq(key), eq(SIZE), eq("image/jpeg"), eq(OWNER), eq("\"etag\""), isNull());
+    }
+
+    @Test
+    void failedStoreReleasesTheBlobAndTheReservation() throws IOException {
+        when(blobService.acquire(hash, SIZE)).thenReturn(1);
+        when(blobService.release(hash)).thenReturn(true);
+        when(storageEngine.put(anyString(), any(InputStream.class), anyLong(), any()))
+                .thenThrow(new RuntimeException("S3 unavailable"));
+
+        assertThatThrownBy(() -> s3Service.uploadFile(file, OWNER)).hasMessage("S3 unavailable");
+
+        verify(quotaService).release(OWNER, SIZE, SIZE);
+        verify(fileIndexService, never()).record(anyString(), anyLong(), any(), any(), any(), any());
+    }
+
+    @Test
+    void failedStoreOfAnUnsharedCopyReleasesTheReservation() throws IOException {
+        when(blobService.acquire(hash, SIZE)).thenReturn(0);
+        when(storageEngine.put(anyString(), any(InputStream.class), anyLong(), any()))
+                .thenThrow(new RuntimeException("S3 unavailable"));
+
+        assertThatThrownBy(() -> s3Service.uploadFile(file, OWNER)).hasMessage("S3 unavailable");
+
+        verify(blobService, never()).release(anyString());
+        verify(quotaService).release(OWNER, SIZE, SIZE);
+    }
+
+    @Test
+    void failedAcquireReleasesTheReservation() {
+        when(blobService.acquire(hash, SIZE)).thenThrow(new RuntimeException("database unavailable"));
+
+        assertThatThrownBy(() -> s3Service.uploadFile(file, OWNER)).hasMessage("database unavailable");
+
+        verify(quotaService).release(OWNER, SIZE);
+    }
+}